@@ -0,0 +1,149 @@
+import java.lang.reflect.Method;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * AsyncStudentService - Non-blocking facade over the active StudentRepository
+ *
+ * This class demonstrates:
+ * - CompletableFuture results (typed rows, not console output)
+ * - One virtual thread per call on Java 21+, platform threads otherwise
+ * - A Semaphore that caps concurrent database calls at the pool size
+ * - Fan-out of many lookups whose I/O overlaps instead of adding up
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class AsyncStudentService implements AutoCloseable {
+
+    /**
+     * A database call that may throw SQLException
+     */
+    interface SqlTask<T> {
+        T call() throws SQLException;
+    }
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final boolean virtualThreads;
+
+    /**
+     * Limit concurrency to the connection pool size, so callers queue here
+     * rather than timing out on pool checkout
+     */
+    AsyncStudentService() {
+        this(JDBCStudentDemo.DbConnector.maxPoolSize());
+    }
+
+    AsyncStudentService(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.permits = new Semaphore(maxConcurrency);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(maxConcurrency, r -> {
+            Thread t = new Thread(r, "AsyncStudentService-worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() via reflection, so the
+     * class still compiles and runs on JDKs without virtual threads
+     */
+    static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    CompletableFuture<Integer> insert(int id, String name, String address) {
+        return submit(() -> JDBCStudentDemo.repository().insert(id, name, address));
+    }
+
+    /**
+     * With write-behind enabled the change is queued, as in
+     * JDBCStudentDemo.updateStudentName, and the result is
+     * Statement.SUCCESS_NO_INFO (the row count is not known yet)
+     */
+    CompletableFuture<Integer> updateName(int id, String newName) {
+        WriteBehindBuffer buffer = StudentDao.writeBehind;
+        if (buffer != null && buffer.updateName(id, newName)) {
+            return CompletableFuture.completedFuture(Statement.SUCCESS_NO_INFO);
+        }
+        return submit(() -> JDBCStudentDemo.repository().updateName(id, newName));
+    }
+
+    CompletableFuture<Integer> updateAddress(int id, String newAddress) {
+        WriteBehindBuffer buffer = StudentDao.writeBehind;
+        if (buffer != null && buffer.updateAddress(id, newAddress)) {
+            return CompletableFuture.completedFuture(Statement.SUCCESS_NO_INFO);
+        }
+        return submit(() -> JDBCStudentDemo.repository().updateAddress(id, newAddress));
+    }
+
+    CompletableFuture<Integer> delete(int id) {
+        return submit(() -> JDBCStudentDemo.repository().delete(id));
+    }
+
+    CompletableFuture<Optional<StudentRow>> findById(int id) {
+        return submit(() -> Optional.ofNullable(JDBCStudentDemo.repository().findById(id)));
+    }
+
+    /**
+     * Look up many IDs concurrently; results are in the same order as the IDs
+     */
+    CompletableFuture<List<Optional<StudentRow>>> findAll(int... ids) {
+        List<CompletableFuture<Optional<StudentRow>>> futures = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            futures.add(findById(id));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .thenApply(ignored -> {
+                List<Optional<StudentRow>> results = new ArrayList<>(futures.size());
+                for (CompletableFuture<Optional<StudentRow>> f : futures) {
+                    results.add(f.join());
+                }
+                return results;
+            });
+    }
+
+    /**
+     * Run a task on the executor, holding a permit while it talks to the database
+     */
+    <T> CompletableFuture<T> submit(SqlTask<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return task.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
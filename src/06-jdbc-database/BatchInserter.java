@@ -0,0 +1,230 @@
+import java.sql.*;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * BatchInserter - Bulk INSERT with batching and chunked transactions
+ *
+ * This class demonstrates:
+ * - Multi-row VALUES rewriting: INSERT ... VALUES (?,?,?),(?,?,?),...
+ * - addBatch()/executeBatch() to send many statements per round trip
+ * - One transaction per chunk, so a bad row only rolls back its own chunk
+ * - Throughput reporting (rows per second) and per-chunk failure details
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class BatchInserter {
+
+    static final int DEFAULT_BATCH_SIZE = 1000;
+    static final int DEFAULT_ROWS_PER_STATEMENT = 100;
+
+    /**
+     * Binds the columns of one row starting at the given parameter index
+     */
+    interface RowBinder<T> {
+        void bind(PreparedStatement pstmt, int firstIndex, T row) throws SQLException;
+    }
+
+    /**
+     * Describes the table a row type is inserted into
+     */
+    static class Target<T> {
+        final String table;
+        final String[] columns;
+        final RowBinder<T> binder;
+        final ToIntFunction<T> idOf;
+
+        Target(String table, String[] columns, RowBinder<T> binder, ToIntFunction<T> idOf) {
+            this.table = table;
+            this.columns = columns;
+            this.binder = binder;
+            this.idOf = idOf;
+        }
+    }
+
+    static final Target<StudentRow> BASICDATA = new Target<>(
+        "basicdata", new String[] { "stu_id", "stu_name", "stu_address" },
+        (pstmt, i, row) -> {
+            pstmt.setInt(i, row.getId());
+            pstmt.setString(i + 1, row.getName());
+            pstmt.setString(i + 2, row.getAddress());
+        },
+        StudentRow::getId);
+
+    static final Target<MarksRow> MARKS = new Target<>(
+        "marks", new String[] { "stu_id", "subject1", "subject2", "subject3" },
+        (pstmt, i, row) -> {
+            pstmt.setInt(i, row.getId());
+            pstmt.setInt(i + 1, row.getSubject1());
+            pstmt.setInt(i + 2, row.getSubject2());
+            pstmt.setInt(i + 3, row.getSubject3());
+        },
+        MarksRow::getId);
+
+    /**
+     * A chunk that was rolled back
+     */
+    static class ChunkFailure {
+        final int chunkIndex;
+        final int firstId;
+        final int lastId;
+        final int rowCount;
+        final String message;
+
+        ChunkFailure(int chunkIndex, int firstId, int lastId, int rowCount, String message) {
+            this.chunkIndex = chunkIndex;
+            this.firstId = firstId;
+            this.lastId = lastId;
+            this.rowCount = rowCount;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Chunk %d (IDs %d..%d, %d rows): %s",
+                                 chunkIndex, firstId, lastId, rowCount, message);
+        }
+    }
+
+    /**
+     * Outcome of a bulk insert
+     */
+    static class Result {
+        final int rowsInserted;
+        final int rowsFailed;
+        final long elapsedNanos;
+        final List<ChunkFailure> failures;
+
+        Result(int rowsInserted, int rowsFailed, long elapsedNanos, List<ChunkFailure> failures) {
+            this.rowsInserted = rowsInserted;
+            this.rowsFailed = rowsFailed;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = Collections.unmodifiableList(failures);
+        }
+
+        double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rowsInserted * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Inserted %d rows, %d failed in %d chunk(s), %.0f rows/s",
+                                 rowsInserted, rowsFailed, failures.size(), rowsPerSecond());
+        }
+    }
+
+    private final int batchSize;
+    private final int rowsPerStatement;
+
+    BatchInserter() {
+        this(DEFAULT_BATCH_SIZE, DEFAULT_ROWS_PER_STATEMENT);
+    }
+
+    /**
+     * @param batchSize rows per chunk (one transaction per chunk)
+     * @param rowsPerStatement rows folded into one multi-row INSERT statement
+     */
+    BatchInserter(int batchSize, int rowsPerStatement) {
+        if (batchSize < 1 || rowsPerStatement < 1) {
+            throw new IllegalArgumentException("batchSize and rowsPerStatement must be positive");
+        }
+        this.batchSize = batchSize;
+        this.rowsPerStatement = Math.min(rowsPerStatement, batchSize);
+    }
+
+    /**
+     * Insert all rows on the given connection, committing once per chunk.
+     * The connection's auto-commit mode is restored afterwards.
+     */
+    <T> Result insertAll(Connection conn, Target<T> target, Collection<? extends T> rows)
+            throws SQLException {
+        List<ChunkFailure> failures = new ArrayList<>();
+        int inserted = 0;
+        int failed = 0;
+        long start = System.nanoTime();
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        String fullSql = buildSql(target, rowsPerStatement);
+        try (PreparedStatement full = conn.prepareStatement(fullSql)) {
+            List<T> chunk = new ArrayList<>(batchSize);
+            int chunkIndex = 0;
+            Iterator<? extends T> it = rows.iterator();
+            while (it.hasNext()) {
+                chunk.add(it.next());
+                if (chunk.size() == batchSize || !it.hasNext()) {
+                    try {
+                        writeChunk(conn, full, target, chunk);
+                        conn.commit();
+                        inserted += chunk.size();
+                    } catch (SQLException e) {
+                        full.clearBatch();
+                        conn.rollback();
+                        failed += chunk.size();
+                        failures.add(new ChunkFailure(chunkIndex,
+                            target.idOf.applyAsInt(chunk.get(0)),
+                            target.idOf.applyAsInt(chunk.get(chunk.size() - 1)),
+                            chunk.size(), e.getMessage()));
+                    }
+                    chunk.clear();
+                    chunkIndex++;
+                }
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return new Result(inserted, failed, System.nanoTime() - start, failures);
+    }
+
+    /**
+     * Send one chunk: full multi-row statements as a JDBC batch, then the remainder
+     */
+    private <T> void writeChunk(Connection conn, PreparedStatement full, Target<T> target,
+                                List<T> chunk) throws SQLException {
+        int columns = target.columns.length;
+        int fullStatements = chunk.size() / rowsPerStatement;
+        int row = 0;
+
+        for (int s = 0; s < fullStatements; s++) {
+            for (int r = 0; r < rowsPerStatement; r++) {
+                target.binder.bind(full, r * columns + 1, chunk.get(row++));
+            }
+            full.addBatch();
+        }
+        if (fullStatements > 0) {
+            full.executeBatch();
+        }
+
+        // The remainder goes out in power-of-two statements (37 = 32 + 4 + 1),
+        // so only log2(rowsPerStatement) tail shapes reach the statement cache
+        int remainder = chunk.size() - row;
+        while (remainder > 0) {
+            int rowCount = Integer.highestOneBit(remainder);
+            try (PreparedStatement tail = conn.prepareStatement(buildSql(target, rowCount))) {
+                for (int r = 0; r < rowCount; r++) {
+                    target.binder.bind(tail, r * columns + 1, chunk.get(row++));
+                }
+                tail.executeUpdate();
+            }
+            remainder -= rowCount;
+        }
+    }
+
+    /**
+     * INSERT INTO table (c1, c2) VALUES (?, ?), (?, ?), ...
+     */
+    static String buildSql(Target<?> target, int rowCount) {
+        String group = "(" + String.join(", ", Collections.nCopies(target.columns.length, "?")) + ")";
+        StringBuilder sql = new StringBuilder(64 + rowCount * (group.length() + 2));
+        sql.append("INSERT INTO ").append(target.table)
+           .append(" (").append(String.join(", ", target.columns)).append(") VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(group);
+        }
+        return sql.toString();
+    }
+}
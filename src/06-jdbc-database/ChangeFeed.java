@@ -0,0 +1,147 @@
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ChangeFeed - Tells in-memory views which rows of a table this program changed
+ *
+ * This class demonstrates:
+ * - One feed per table (basicdata, marks) that every write path reports to
+ * - Per-view logs of changed IDs, so each view (MarksSnapshot, Leaderboard,
+ *   NameIndex) re-reads only those rows on refresh
+ * - A "reset" signal for bulk loads, where listing every ID is pointless
+ * - The time of the latest change, so ReplicaRouter can keep reads on the
+ *   primary until replicas have had time to apply it
+ *
+ * IDs are reported whether or not the write succeeded; a refresh simply
+ * re-reads the current row. Changes made by other programs are not seen.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class ChangeFeed {
+
+    /** Rows of basicdata (inserts, name/address updates, deletes) */
+    static final ChangeFeed STUDENTS = new ChangeFeed();
+
+    /** Rows of marks (including rows removed by a cascading student delete) */
+    static final ChangeFeed MARKS = new ChangeFeed();
+
+    private final CopyOnWriteArrayList<Log> logs = new CopyOnWriteArrayList<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile long lastChangeNanos;
+
+    private ChangeFeed() {
+    }
+
+    /**
+     * IDs changed since the last drain, for one view
+     */
+    final class Log implements AutoCloseable {
+        private int[] ids = new int[64];   // guarded by this
+        private int count;                 // guarded by this
+        private boolean reset;             // guarded by this
+
+        synchronized void add(int id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+
+        synchronized void reset() {
+            reset = true;
+            count = 0;
+        }
+
+        /**
+         * @return true (once) if the whole table must be re-read; the
+         *         recorded IDs are dropped as well
+         */
+        synchronized boolean takeReset() {
+            boolean wasReset = reset;
+            reset = false;
+            if (wasReset) {
+                count = 0;
+            }
+            return wasReset;
+        }
+
+        /**
+         * @return the recorded IDs, sorted and without duplicates
+         */
+        synchronized int[] drain() {
+            int[] drained = Arrays.copyOf(ids, count);
+            count = 0;
+            Arrays.sort(drained);
+            int unique = 0;
+            for (int i = 0; i < drained.length; i++) {
+                if (i == 0 || drained[i] != drained[i - 1]) {
+                    drained[unique++] = drained[i];
+                }
+            }
+            return Arrays.copyOf(drained, unique);
+        }
+
+        /**
+         * Put drained IDs back after a failed refresh
+         */
+        void requeue(int[] drained) {
+            for (int id : drained) {
+                add(id);
+            }
+        }
+
+        @Override
+        public void close() {
+            logs.remove(this);
+        }
+    }
+
+    /**
+     * Start recording changed IDs (register before the initial load, so
+     * nothing written during the load is missed)
+     */
+    Log track() {
+        Log log = new Log();
+        logs.add(log);
+        return log;
+    }
+
+    /**
+     * Number of changes reported so far; equal versions mean no write
+     * through this program happened in between (e.g. for HTTP ETags)
+     */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * True if a change was reported less than nanos ago
+     */
+    boolean changedWithin(long nanos) {
+        return version.get() != 0 && System.nanoTime() - lastChangeNanos < nanos;
+    }
+
+    /**
+     * Record that a row may have changed
+     */
+    void changed(int id) {
+        lastChangeNanos = System.nanoTime();
+        version.incrementAndGet();
+        for (Log log : logs) {
+            log.add(id);
+        }
+    }
+
+    /**
+     * Record that any row may have changed (after a bulk load)
+     */
+    void changedAll() {
+        lastChangeNanos = System.nanoTime();
+        version.incrementAndGet();
+        for (Log log : logs) {
+            log.reset();
+        }
+    }
+}
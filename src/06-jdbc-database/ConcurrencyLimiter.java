@@ -0,0 +1,292 @@
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ConcurrencyLimiter - Adaptive admission control for database work
+ *
+ * This class demonstrates:
+ * - AIMD (additive increase, multiplicative decrease), as in TCP congestion
+ *   control: the limit grows by about 1 per round of fast calls and shrinks
+ *   by 10% when calls get slow
+ * - Latency as the congestion signal: a call is "slow" when it takes more
+ *   than tolerance x the long-run average, or more than maxLatencyMillis
+ * - A bounded wait queue per priority; when it is full, callers are rejected
+ *   at once instead of piling up (load shedding)
+ * - Strict priority: queued writes are admitted before queued reads
+ *
+ * Callers hold a permit from acquire() until their connection is closed,
+ * and report the time of each statement they execute on it (executed()).
+ * The sample is the mean time per statement, not how long the connection
+ * was held, so a long streaming export, a caller working between
+ * statements or a many-statement transaction does not look like a slow
+ * database. A permit that ran no statement gives no sample.
+ * A caller that already holds a permit and asks for a second one can wait
+ * for itself; maxWaitMillis bounds that wait.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class ConcurrencyLimiter {
+
+    enum Priority { WRITE, READ }
+
+    /**
+     * Limiter settings (all times in milliseconds)
+     */
+    static class Config {
+        int initialLimit = 8;
+        int minLimit = 1;
+        int maxLimit = 50;
+        int maxQueuedWrites = 100;
+        int maxQueuedReads = 50;
+        long maxWaitMillis = 1_000;
+        long maxLatencyMillis = 250;
+        double tolerance = 2.0;
+        double backoffRatio = 0.9;
+
+        Config initialLimit(int value) { this.initialLimit = value; return this; }
+        Config minLimit(int value) { this.minLimit = value; return this; }
+        Config maxLimit(int value) { this.maxLimit = value; return this; }
+        Config maxQueuedWrites(int value) { this.maxQueuedWrites = value; return this; }
+        Config maxQueuedReads(int value) { this.maxQueuedReads = value; return this; }
+        Config maxWaitMillis(long value) { this.maxWaitMillis = value; return this; }
+        Config maxLatencyMillis(long value) { this.maxLatencyMillis = value; return this; }
+        Config tolerance(double value) { this.tolerance = value; return this; }
+        Config backoffRatio(double value) { this.backoffRatio = value; return this; }
+
+        void validate() {
+            if (minLimit < 1 || minLimit > maxLimit) {
+                throw new IllegalArgumentException("Need 1 <= minLimit <= maxLimit");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("initialLimit must be between minLimit and maxLimit");
+            }
+            if (maxQueuedWrites < 0 || maxQueuedReads < 0) {
+                throw new IllegalArgumentException("Queue sizes cannot be negative");
+            }
+            if (backoffRatio <= 0 || backoffRatio >= 1 || tolerance <= 1) {
+                throw new IllegalArgumentException("Need 0 < backoffRatio < 1 and tolerance > 1");
+            }
+        }
+    }
+
+    /**
+     * Point-in-time view of the limiter
+     */
+    static class Stats {
+        final int limit;
+        final int inFlight;
+        final int queuedWrites;
+        final int queuedReads;
+        final long admitted;
+        final long rejected;
+        final long timedOut;
+        final double averageLatencyMillis;
+
+        Stats(int limit, int inFlight, int queuedWrites, int queuedReads, long admitted,
+              long rejected, long timedOut, double averageLatencyMillis) {
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.queuedWrites = queuedWrites;
+            this.queuedReads = queuedReads;
+            this.admitted = admitted;
+            this.rejected = rejected;
+            this.timedOut = timedOut;
+            this.averageLatencyMillis = averageLatencyMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("limit=%d, inFlight=%d, queued=%d writes/%d reads, admitted=%d, "
+                                 + "rejected=%d, timedOut=%d, avgLatency=%.1fms",
+                                 limit, inFlight, queuedWrites, queuedReads, admitted,
+                                 rejected, timedOut, averageLatencyMillis);
+        }
+    }
+
+    /**
+     * The right to run one call; release exactly once
+     */
+    final class Permit {
+        private long executeNanos;
+        private int executions;
+        private boolean released;
+
+        /**
+         * Record the time of one statement execution (or commit)
+         */
+        void executed(long nanos) {
+            executeNanos += nanos;
+            executions++;
+        }
+
+        /**
+         * @param failed the call failed in a way that suggests overload
+         *               (timeout, lost connection): always counts as slow
+         */
+        void release(boolean failed) {
+            if (released) {
+                return;
+            }
+            released = true;
+            onRelease(executions == 0 ? (failed ? 0 : -1) : executeNanos / executions, failed);
+        }
+    }
+
+    private static final double EWMA_WEIGHT = 0.05;
+
+    private final Config config;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writeTurn = lock.newCondition();
+    private final Condition readTurn = lock.newCondition();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    // Guarded by lock
+    private double limit;
+    private int inFlight;
+    private int queuedWrites;
+    private int queuedReads;
+    private double averageNanos;
+    private long lastDecrease;
+
+    ConcurrencyLimiter(Config config) {
+        config.validate();
+        this.config = config;
+        this.limit = config.initialLimit;
+    }
+
+    /**
+     * Wait (up to maxWaitMillis) for a permit
+     * @throws SQLTransientConnectionException when the queue is full or the wait times out
+     */
+    Permit acquire(Priority priority) throws SQLException {
+        boolean write = priority == Priority.WRITE;
+        lock.lock();
+        try {
+            if (hasRoom() && queuedWrites == 0 && (write || queuedReads == 0)) {
+                return admit();
+            }
+            int queued = write ? queuedWrites : queuedReads;
+            if (queued >= (write ? config.maxQueuedWrites : config.maxQueuedReads)) {
+                rejected.increment();
+                throw new SQLTransientConnectionException("Overloaded: " + queued + " "
+                    + priority.name().toLowerCase() + "s already waiting (limit " + (int) limit + ")");
+            }
+            Condition turn = write ? writeTurn : readTurn;
+            if (write) {
+                queuedWrites++;
+            } else {
+                queuedReads++;
+            }
+            try {
+                long remaining = TimeUnit.MILLISECONDS.toNanos(config.maxWaitMillis);
+                while (!hasRoom() || (!write && queuedWrites > 0)) {
+                    if (remaining <= 0) {
+                        timedOut.increment();
+                        throw new SQLTransientConnectionException("Overloaded: waited "
+                            + config.maxWaitMillis + "ms for admission (limit " + (int) limit + ")");
+                    }
+                    remaining = turn.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for admission", e);
+            } finally {
+                if (write) {
+                    queuedWrites--;
+                } else {
+                    queuedReads--;
+                }
+                wakeNext();
+            }
+            return admit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasRoom() {
+        return inFlight < (int) limit;
+    }
+
+    private Permit admit() {
+        inFlight++;
+        admitted.increment();
+        return new Permit();
+    }
+
+    /**
+     * Let the next waiter re-check, writes first
+     */
+    private void wakeNext() {
+        if (!hasRoom()) {
+            return;
+        }
+        if (queuedWrites > 0) {
+            writeTurn.signal();
+        } else if (queuedReads > 0) {
+            readTurn.signal();
+        }
+    }
+
+    /**
+     * @param nanos mean statement time of the call, or -1 when it ran no statement
+     */
+    private void onRelease(long nanos, boolean failed) {
+        lock.lock();
+        try {
+            int wasInFlight = inFlight--;
+            if (nanos < 0) {
+                wakeNext();
+                return;
+            }
+            double average = averageNanos == 0 ? nanos : averageNanos;
+            boolean slow = failed
+                || nanos > TimeUnit.MILLISECONDS.toNanos(config.maxLatencyMillis)
+                || nanos > average * config.tolerance;
+            long now = System.nanoTime();
+            if (slow) {
+                // Back off at most once per typical call, so one burst of
+                // slow calls is a single decrease, not a collapse
+                if (now - lastDecrease > average) {
+                    limit = Math.max(config.minLimit, limit * config.backoffRatio);
+                    lastDecrease = now;
+                }
+            } else if (wasInFlight * 2 >= limit) {
+                // Only grow when the limit is actually being used
+                limit = Math.min(config.maxLimit, limit + 1.0 / limit);
+            }
+            if (!failed) {
+                averageNanos = average + EWMA_WEIGHT * (nanos - average);
+            }
+            wakeNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Stats stats() {
+        lock.lock();
+        try {
+            return new Stats((int) limit, inFlight, queuedWrites, queuedReads, admitted.sum(),
+                             rejected.sum(), timedOut.sum(), averageNanos / 1e6);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,551 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConnectionPool - Bounded JDBC Connection Pool
+ *
+ * This class demonstrates:
+ * - Reusing physical connections instead of opening one per query
+ * - Warm-up of a minimum number of idle connections at startup
+ * - Validation on checkout (only after the connection sat idle for a while)
+ * - Idle eviction and maximum connection lifetime
+ * - Checkout timeout when every connection is in use
+ * - Pool statistics (active, idle, waiters, wait time)
+ * - A per-connection PreparedStatement cache (LRU, keyed by SQL text)
+ *
+ * Callers receive a proxy {@link Connection}; calling close() on it returns
+ * the physical connection to the pool instead of closing the socket, so the
+ * usual try-with-resources code keeps working unchanged. The same applies to
+ * statements from prepareStatement(sql): closing one clears its parameters
+ * and keeps it open for the next caller with the same SQL, so with
+ * useServerPrepStmts=true the server parses and plans it once per connection.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Pool settings (all times in milliseconds)
+     */
+    static class Config {
+        int minIdle = 2;
+        int maxSize = 10;
+        long checkoutTimeoutMillis = 5_000;
+        long idleTimeoutMillis = 10 * 60_000;
+        long maxLifetimeMillis = 30 * 60_000;
+        long validationIdleMillis = 500;
+        int validationTimeoutSeconds = 2;
+        long housekeepingPeriodMillis = 30_000;
+        int statementCacheSize = 32;
+
+        Config minIdle(int value) { this.minIdle = value; return this; }
+        Config maxSize(int value) { this.maxSize = value; return this; }
+        Config checkoutTimeoutMillis(long value) { this.checkoutTimeoutMillis = value; return this; }
+        Config idleTimeoutMillis(long value) { this.idleTimeoutMillis = value; return this; }
+        Config maxLifetimeMillis(long value) { this.maxLifetimeMillis = value; return this; }
+        Config validationIdleMillis(long value) { this.validationIdleMillis = value; return this; }
+        Config validationTimeoutSeconds(int value) { this.validationTimeoutSeconds = value; return this; }
+        Config housekeepingPeriodMillis(long value) { this.housekeepingPeriodMillis = value; return this; }
+        Config statementCacheSize(int value) { this.statementCacheSize = value; return this; }
+
+        void validate() {
+            if (maxSize < 1) {
+                throw new IllegalArgumentException("maxSize must be at least 1");
+            }
+            if (minIdle < 0 || minIdle > maxSize) {
+                throw new IllegalArgumentException("minIdle must be between 0 and maxSize");
+            }
+            if (statementCacheSize < 0) {
+                throw new IllegalArgumentException("statementCacheSize cannot be negative");
+            }
+        }
+    }
+
+    /**
+     * Point-in-time pool statistics
+     */
+    static class Stats {
+        final int active;
+        final int idle;
+        final int waiters;
+        final long checkouts;
+        final long timeouts;
+        final long totalWaitNanos;
+        final long maxWaitNanos;
+
+        Stats(int active, int idle, int waiters, long checkouts, long timeouts,
+              long totalWaitNanos, long maxWaitNanos) {
+            this.active = active;
+            this.idle = idle;
+            this.waiters = waiters;
+            this.checkouts = checkouts;
+            this.timeouts = timeouts;
+            this.totalWaitNanos = totalWaitNanos;
+            this.maxWaitNanos = maxWaitNanos;
+        }
+
+        double averageWaitMillis() {
+            return checkouts == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / checkouts;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Pool[active=%d, idle=%d, waiters=%d, checkouts=%d, timeouts=%d, " +
+                                 "avgWait=%.3fms, maxWait=%.3fms]",
+                                 active, idle, waiters, checkouts, timeouts,
+                                 averageWaitMillis(), maxWaitNanos / 1_000_000.0);
+        }
+    }
+
+    /**
+     * How often one SQL string was prepared versus served from a statement cache
+     */
+    static class StatementStats {
+        final String sql;
+        final LongAdder prepares = new LongAdder();
+        final LongAdder reuses = new LongAdder();
+
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("prepared=%d reused=%d  %s", prepares.sum(), reuses.sum(), sql);
+        }
+    }
+
+    /**
+     * A cached physical statement; only one borrower may use it at a time
+     */
+    static class CachedStatement {
+        final PreparedStatement physical;
+        boolean inUse;
+        boolean evicted;
+
+        CachedStatement(PreparedStatement physical) {
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * Factory for physical connections (normally DriverManager)
+     */
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * A physical connection plus the bookkeeping the pool needs
+     */
+    static class PooledConnection {
+        final Connection physical;
+        final long createdAt;
+        final Map<String, CachedStatement> statements;
+        volatile long lastReleasedAt;
+        volatile boolean broken;
+
+        PooledConnection(Connection physical, int statementCacheSize) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastReleasedAt = createdAt;
+            // Access-ordered map = LRU; the eldest statement is closed once the cache is full
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= statementCacheSize) {
+                        return false;
+                    }
+                    CachedStatement cs = eldest.getValue();
+                    if (cs.inUse) {
+                        cs.evicted = true; // closed when its borrower closes it
+                    } else {
+                        closeQuietly(cs.physical);
+                    }
+                    return true;
+                }
+            };
+        }
+    }
+
+    private final Config config;
+    private final ConnectionFactory factory;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLong checkouts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final ConcurrentHashMap<String, StatementStats> statementStats = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    ConnectionPool(Config config, ConnectionFactory factory) throws SQLException {
+        config.validate();
+        this.config = config;
+        this.factory = factory;
+        this.permits = new Semaphore(config.maxSize, true);
+
+        warmUp();
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ConnectionPool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+            config.housekeepingPeriodMillis, config.housekeepingPeriodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Open minIdle connections up front so the first callers don't pay for them
+     */
+    private void warmUp() throws SQLException {
+        while (total.get() < config.minIdle) {
+            if (!reserveSlot()) {
+                return;
+            }
+            idle.offerLast(createPhysical());
+        }
+    }
+
+    /**
+     * Borrow a connection, waiting up to checkoutTimeoutMillis for one to free up
+     */
+    Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        waiters.incrementAndGet();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(config.checkoutTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        } finally {
+            waiters.decrementAndGet();
+        }
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + config.checkoutTimeoutMillis +
+                                          "ms waiting for a connection " + stats());
+        }
+
+        try {
+            PooledConnection pc = takeIdleOrCreate();
+            recordWait(System.nanoTime() - start);
+            active.incrementAndGet();
+            return wrap(pc);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection takeIdleOrCreate() throws SQLException {
+        while (true) {
+            PooledConnection pc = idle.pollFirst();
+            if (pc == null) {
+                if (reserveSlot()) {
+                    return createPhysical();
+                }
+                // Housekeeper is filling the pool right now; wait briefly for its connection
+                try {
+                    pc = idle.pollFirst(10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a connection", e);
+                }
+                if (pc == null) {
+                    continue;
+                }
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - pc.createdAt >= config.maxLifetimeMillis) {
+                closePhysical(pc);
+                continue;
+            }
+            if (now - pc.lastReleasedAt >= config.validationIdleMillis && !isValid(pc)) {
+                closePhysical(pc);
+                continue;
+            }
+            return pc;
+        }
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return pc.physical.isValid(config.validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Called by the proxy when the caller closes its connection
+     */
+    void release(PooledConnection pc) {
+        active.decrementAndGet();
+        try {
+            if (closed || pc.broken || pc.physical.isClosed()
+                    || System.currentTimeMillis() - pc.createdAt >= config.maxLifetimeMillis) {
+                closePhysical(pc);
+                return;
+            }
+            if (!pc.physical.getAutoCommit()) {
+                // Never hand an open transaction to the next caller
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            pc.lastReleasedAt = System.currentTimeMillis();
+            idle.offerFirst(pc);
+        } catch (SQLException e) {
+            closePhysical(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Periodic maintenance: evict idle/expired connections, then refill to minIdle
+     */
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pc : idle) {
+            boolean expired = now - pc.createdAt >= config.maxLifetimeMillis;
+            boolean idleTooLong = now - pc.lastReleasedAt >= config.idleTimeoutMillis
+                                  && total.get() > config.minIdle;
+            if ((expired || idleTooLong) && idle.remove(pc)) {
+                closePhysical(pc);
+            }
+        }
+        try {
+            warmUp();
+        } catch (SQLException e) {
+            System.err.println("⚠️  Pool refill failed: " + e.getMessage());
+        }
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = total.get();
+            if (current >= config.maxSize) {
+                return false;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledConnection createPhysical() throws SQLException {
+        try {
+            return new PooledConnection(factory.create(), config.statementCacheSize);
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void closePhysical(PooledConnection pc) {
+        total.decrementAndGet();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // The connection is being discarded anyway
+        }
+    }
+
+    private void recordWait(long nanos) {
+        checkouts.incrementAndGet();
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    Stats stats() {
+        return new Stats(active.get(), idle.size(), waiters.get(), checkouts.get(),
+                         timeouts.get(), totalWaitNanos.get(), maxWaitNanos.get());
+    }
+
+    /**
+     * Per-SQL prepare/reuse counts, most reused first
+     */
+    List<StatementStats> statementStats() {
+        List<StatementStats> list = new ArrayList<>(statementStats.values());
+        list.sort((a, b) -> Long.compare(b.reuses.sum(), a.reuses.sum()));
+        return list;
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ignored) {
+            // Best effort; the statement is being discarded
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            closePhysical(pc);
+        }
+    }
+
+    private Connection wrap(PooledConnection pc) {
+        return (Connection) Proxy.newProxyInstance(
+            ConnectionPool.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new ConnectionHandler(pc));
+    }
+
+    /**
+     * Forwards every call to the physical connection except close()
+     */
+    private class ConnectionHandler implements InvocationHandler {
+        private final PooledConnection pc;
+        private boolean logicallyClosed;
+
+        ConnectionHandler(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!logicallyClosed) {
+                        logicallyClosed = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return logicallyClosed || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.physical + "]";
+                default:
+                    break;
+            }
+            if (logicallyClosed) {
+                throw new SQLException("Connection is closed");
+            }
+            if ("prepareStatement".equals(method.getName()) && args.length == 1
+                    && config.statementCacheSize > 0) {
+                return prepareCached((Connection) proxy, (String) args[0]);
+            }
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        }
+
+        private PreparedStatement prepareCached(Connection proxy, String sql) throws SQLException {
+            StatementStats stats = statementStats.computeIfAbsent(sql, StatementStats::new);
+            CachedStatement cs = pc.statements.get(sql);
+            if (cs != null && cs.inUse) {
+                // Same SQL prepared twice before the first was closed: use a one-off statement
+                stats.prepares.increment();
+                return pc.physical.prepareStatement(sql);
+            }
+            if (cs == null) {
+                cs = new CachedStatement(pc.physical.prepareStatement(sql));
+                pc.statements.put(sql, cs);
+                stats.prepares.increment();
+            } else {
+                stats.reuses.increment();
+            }
+            cs.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new StatementHandler(proxy, cs));
+        }
+
+        private Throwable unwrap(InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                String state = ((SQLException) cause).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    // SQLSTATE class 08 = connection exception; don't reuse this socket
+                    pc.broken = true;
+                }
+            }
+            return cause;
+        }
+
+        /**
+         * Forwards to the cached statement; close() hands it back to the cache
+         */
+        private class StatementHandler implements InvocationHandler {
+            private final Connection connection;
+            private final CachedStatement cs;
+            private boolean handleClosed;
+
+            StatementHandler(Connection connection, CachedStatement cs) {
+                this.connection = connection;
+                this.cs = cs;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!handleClosed) {
+                            handleClosed = true;
+                            cs.inUse = false;
+                            if (cs.evicted) {
+                                cs.physical.close();
+                            } else {
+                                cs.physical.clearParameters();
+                                cs.physical.clearBatch();
+                            }
+                        }
+                        return null;
+                    case "isClosed":
+                        return handleClosed || cs.physical.isClosed();
+                    case "getConnection":
+                        return connection;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "CachedStatement[" + cs.physical + "]";
+                    default:
+                        break;
+                }
+                if (handleClosed) {
+                    throw new SQLException("Statement is closed");
+                }
+                try {
+                    return method.invoke(cs.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw unwrap(e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,475 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CsvStudentLoader - Parallel, restartable CSV import for basicdata and marks
+ *
+ * This class demonstrates:
+ * - An allocation-light CSV parser (ints parsed straight from the char buffer)
+ * - Splitting rows into stu_id ranges, one worker and connection per range
+ * - Batched inserts through BatchInserter, one transaction per chunk
+ * - Loading basicdata completely before marks (marks.stu_id is a foreign key)
+ * - A checkpoint file, so a failed load restarts after the last committed chunk
+ *
+ * Expected file layouts (a header line is skipped automatically):
+ *   basicdata.csv: stu_id,stu_name,stu_address
+ *   marks.csv:     stu_id,subject1,subject2,subject3
+ *
+ * Chunk numbers are deterministic for a given file, partition count and
+ * batch size, so the checkpoint records all three (each file by path, size
+ * and modification time) and refuses to resume a load that was started
+ * with a different file or different settings.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class CsvStudentLoader {
+
+    /**
+     * Loader settings
+     */
+    static class Config {
+        int partitions = 4;
+        int batchSize = BatchInserter.DEFAULT_BATCH_SIZE;
+        int queueDepth = 4;
+        Path checkpointFile = Paths.get("csv-load.checkpoint");
+
+        Config partitions(int value) { this.partitions = value; return this; }
+        Config batchSize(int value) { this.batchSize = value; return this; }
+        Config queueDepth(int value) { this.queueDepth = value; return this; }
+        Config checkpointFile(Path value) { this.checkpointFile = value; return this; }
+    }
+
+    /**
+     * Outcome of one phase (one table)
+     */
+    static class PhaseReport {
+        final String table;
+        final long rowsLoaded;
+        final long chunksSkipped;
+        final long elapsedNanos;
+        final List<String> failures;
+
+        PhaseReport(String table, long rowsLoaded, long chunksSkipped, long elapsedNanos,
+                    List<String> failures) {
+            this.table = table;
+            this.rowsLoaded = rowsLoaded;
+            this.chunksSkipped = chunksSkipped;
+            this.elapsedNanos = elapsedNanos;
+            this.failures = failures;
+        }
+
+        boolean succeeded() {
+            return failures.isEmpty();
+        }
+
+        double rowsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : rowsLoaded * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d rows in %.1fs (%.0f rows/s), %d chunk(s) skipped from checkpoint%s",
+                                 table, rowsLoaded, elapsedNanos / 1e9, rowsPerSecond(), chunksSkipped,
+                                 failures.isEmpty() ? "" : ", FAILED: " + failures);
+        }
+    }
+
+    /**
+     * Reads one row from the current CSV record
+     */
+    interface RowParser<T> {
+        T parse(CsvReader reader) throws IOException;
+    }
+
+    private static final RowParser<StudentRow> STUDENT_PARSER =
+        r -> new StudentRow(r.readInt(), r.readString(), r.readString());
+
+    private static final RowParser<MarksRow> MARKS_PARSER =
+        r -> new MarksRow(r.readInt(), r.readInt(), r.readInt(), r.readInt());
+
+    private final Config config;
+    private final Properties checkpoint = new Properties();
+
+    CsvStudentLoader(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * Load both files: basicdata first, then marks.
+     * Stops after the first phase that fails; run again to resume.
+     */
+    List<PhaseReport> load(Path basicdataCsv, Path marksCsv)
+            throws IOException, InterruptedException {
+        int partitions = Math.max(1, Math.min(config.partitions,
+                                              JDBCStudentDemo.DbConnector.maxPoolSize()));
+        loadCheckpoint(partitions, basicdataCsv, marksCsv);
+
+        List<PhaseReport> reports = new ArrayList<>();
+        PhaseReport students = runPhase(basicdataCsv, BatchInserter.BASICDATA, STUDENT_PARSER, partitions);
+        reports.add(students);
+        // Cached "no such ID" entries are now wrong for every loaded student
+        StudentDao.CACHE.clear();
+        ChangeFeed.STUDENTS.changedAll();
+        if (!students.succeeded()) {
+            return reports;
+        }
+        reports.add(runPhase(marksCsv, BatchInserter.MARKS, MARKS_PARSER, partitions));
+        ChangeFeed.MARKS.changedAll();
+        if (reports.get(1).succeeded()) {
+            Files.deleteIfExists(config.checkpointFile);
+        }
+        return reports;
+    }
+
+    private <T> PhaseReport runPhase(Path csv, BatchInserter.Target<T> target, RowParser<T> parser,
+                                     int partitions) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int[] range = scanIdRange(csv);
+        AtomicLong rowsLoaded = new AtomicLong();
+        AtomicLong chunksSkipped = new AtomicLong();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        List<BlockingQueue<List<T>>> queues = new ArrayList<>(partitions);
+        ExecutorService workers = Executors.newFixedThreadPool(partitions);
+        for (int p = 0; p < partitions; p++) {
+            BlockingQueue<List<T>> queue = new ArrayBlockingQueue<>(config.queueDepth);
+            queues.add(queue);
+            int partition = p;
+            workers.execute(() -> runWorker(target, partition, queue, rowsLoaded,
+                                            chunksSkipped, failed, failures));
+        }
+
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8))) {
+            List<List<T>> pending = new ArrayList<>(partitions);
+            for (int p = 0; p < partitions; p++) {
+                pending.add(new ArrayList<>(config.batchSize));
+            }
+            reader.skipHeader();
+            while (!failed.get() && reader.nextRecord()) {
+                T row = parser.parse(reader);
+                int p = partitionOf(target.idOf.applyAsInt(row), range, partitions);
+                List<T> chunk = pending.get(p);
+                chunk.add(row);
+                if (chunk.size() == config.batchSize) {
+                    queues.get(p).put(chunk);
+                    pending.set(p, new ArrayList<>(config.batchSize));
+                }
+            }
+            for (int p = 0; p < partitions; p++) {
+                if (!pending.get(p).isEmpty() && !failed.get()) {
+                    queues.get(p).put(pending.get(p));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            failed.set(true);
+            failures.add("Parse error: " + e.getMessage());
+        } finally {
+            for (BlockingQueue<List<T>> queue : queues) {
+                queue.put(Collections.emptyList()); // end-of-input marker
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        }
+
+        return new PhaseReport(target.table, rowsLoaded.get(), chunksSkipped.get(),
+                               System.nanoTime() - start, new ArrayList<>(failures));
+    }
+
+    /**
+     * Drain one partition's queue on its own connection, checkpointing each committed chunk
+     */
+    private <T> void runWorker(BatchInserter.Target<T> target, int partition,
+                               BlockingQueue<List<T>> queue, AtomicLong rowsLoaded,
+                               AtomicLong chunksSkipped, AtomicBoolean failed, List<String> failures) {
+        String key = target.table + "." + partition;
+        long committed = Long.parseLong(checkpoint.getProperty(key, "-1"));
+        // One chunk = one BatchInserter transaction, so the checkpoint matches what was committed
+        BatchInserter inserter = new BatchInserter(config.batchSize, BatchInserter.DEFAULT_ROWS_PER_STATEMENT);
+        long seq = 0;
+
+        try (Connection conn = JDBCStudentDemo.DbConnector.getConnection()) {
+            while (true) {
+                List<T> chunk = queue.take();
+                if (chunk.isEmpty()) {
+                    return;
+                }
+                if (failed.get()) {
+                    continue; // keep draining so the parser never blocks
+                }
+                if (seq <= committed) {
+                    chunksSkipped.incrementAndGet();
+                    seq++;
+                    continue;
+                }
+                BatchInserter.Result result = inserter.insertAll(conn, target, chunk);
+                if (!result.failures.isEmpty()) {
+                    failed.set(true);
+                    failures.add("Partition " + partition + " chunk " + seq + ": "
+                                 + result.failures.get(0).message);
+                    continue;
+                }
+                rowsLoaded.addAndGet(result.rowsInserted);
+                saveCheckpoint(key, seq);
+                seq++;
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            failed.set(true);
+            failures.add("Partition " + partition + ": " + e.getMessage());
+            drain(queue);
+        } catch (InterruptedException e) {
+            failed.set(true);
+            drain(queue); // the interrupt flag is clear again, so take() can still block here
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> void drain(BlockingQueue<List<T>> queue) {
+        try {
+            while (!queue.take().isEmpty()) {
+                // discard until the end-of-input marker
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static int partitionOf(int id, int[] range, int partitions) {
+        long width = (long) range[1] - range[0] + 1;
+        int p = (int) (((long) id - range[0]) * partitions / width);
+        return Math.max(0, Math.min(partitions - 1, p));
+    }
+
+    /**
+     * Quick first pass that only parses the stu_id column
+     * @return {min, max} stu_id in the file
+     */
+    static int[] scanIdRange(Path csv) throws IOException {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(csv, StandardCharsets.UTF_8))) {
+            reader.skipHeader();
+            while (reader.nextRecord()) {
+                int id = reader.readInt();
+                min = Math.min(min, id);
+                max = Math.max(max, id);
+            }
+        }
+        return min > max ? new int[] { 0, 0 } : new int[] { min, max };
+    }
+
+    private void loadCheckpoint(int partitions, Path basicdataCsv, Path marksCsv) throws IOException {
+        checkpoint.clear();
+        Properties expected = new Properties();
+        expected.setProperty("layout", partitions + "/" + config.batchSize);
+        expected.setProperty(BatchInserter.BASICDATA.table + ".file", identity(basicdataCsv));
+        expected.setProperty(BatchInserter.MARKS.table + ".file", identity(marksCsv));
+        if (Files.exists(config.checkpointFile)) {
+            try (Reader in = Files.newBufferedReader(config.checkpointFile, StandardCharsets.UTF_8)) {
+                checkpoint.load(in);
+            }
+            for (String key : expected.stringPropertyNames()) {
+                String recorded = checkpoint.getProperty(key);
+                if (!expected.getProperty(key).equals(recorded)) {
+                    throw new IOException("Checkpoint " + config.checkpointFile + " was written for " +
+                                          key + " " + recorded + ", not " + expected.getProperty(key) +
+                                          " (delete it to start over)");
+                }
+            }
+        }
+        checkpoint.putAll(expected);
+    }
+
+    /**
+     * path|size|last-modified: a new CSV drop under the same name does not
+     * resume the old one's checkpoint
+     */
+    private static String identity(Path csv) throws IOException {
+        return csv.toAbsolutePath().normalize() + "|" + Files.size(csv) + "|"
+            + Files.getLastModifiedTime(csv).toMillis();
+    }
+
+    /**
+     * Record a committed chunk; written to a temp file and moved into place
+     */
+    private synchronized void saveCheckpoint(String key, long seq) throws IOException {
+        checkpoint.setProperty(key, Long.toString(seq));
+        Path tmp = config.checkpointFile.resolveSibling(config.checkpointFile.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            checkpoint.store(out, "CsvStudentLoader progress: <table>.<partition> = last committed chunk");
+        }
+        Files.move(tmp, config.checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Minimal CSV reader over a reusable char buffer.
+     * Integers are parsed in place; only text fields allocate a String.
+     */
+    static final class CsvReader implements Closeable {
+        private final Reader in;
+        private final char[] buf = new char[64 * 1024];
+        private final StringBuilder quoted = new StringBuilder();
+        private int pos;
+        private int limit;
+        private long line;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        private boolean fill() throws IOException {
+            if (pos < limit) {
+                return true;
+            }
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Skip the first line if it does not start with a number
+         */
+        void skipHeader() throws IOException {
+            if (fill() && !Character.isDigit(buf[pos]) && buf[pos] != '-') {
+                skipToNextLine();
+            }
+        }
+
+        /**
+         * Move past line breaks to the start of the next record
+         * @return false at end of input
+         */
+        boolean nextRecord() throws IOException {
+            // Finish the previous record if the parser didn't read every field
+            if (line > 0 && fill() && buf[pos] != '\n' && buf[pos] != '\r') {
+                skipToNextLine();
+            }
+            while (fill() && (buf[pos] == '\n' || buf[pos] == '\r')) {
+                pos++;
+            }
+            if (!fill()) {
+                return false;
+            }
+            line++;
+            return true;
+        }
+
+        private void skipToNextLine() throws IOException {
+            boolean inQuotes = false;
+            while (fill()) {
+                char c = buf[pos++];
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                } else if (c == '\n' && !inQuotes) {
+                    return;
+                }
+            }
+        }
+
+        int readInt() throws IOException {
+            while (fill() && buf[pos] == ' ') {
+                pos++;
+            }
+            boolean negative = false;
+            if (fill() && buf[pos] == '-') {
+                negative = true;
+                pos++;
+            }
+            long max = negative ? Integer.MAX_VALUE + 1L : Integer.MAX_VALUE;
+            long value = 0;
+            int digits = 0;
+            boolean trailing = false; // spaces after the last digit; no more digits allowed
+            while (fill()) {
+                char c = buf[pos];
+                if (c >= '0' && c <= '9' && !trailing) {
+                    value = value * 10 + (c - '0');
+                    if (value > max) {
+                        throw new IOException("Line " + line + ": number too large");
+                    }
+                    digits++;
+                    pos++;
+                } else if (c == ' ' && digits > 0) {
+                    trailing = true;
+                    pos++;
+                } else if (c == ',' || c == '\n' || c == '\r') {
+                    break;
+                } else {
+                    throw new IOException("Line " + line + ": unexpected '" + c + "' in number");
+                }
+            }
+            if (digits == 0) {
+                throw new IOException("Line " + line + ": missing number");
+            }
+            skipComma();
+            return (int) (negative ? -value : value);
+        }
+
+        String readString() throws IOException {
+            if (fill() && buf[pos] == '"') {
+                pos++;
+                return readQuoted();
+            }
+            int start = pos;
+            // Fast path: field fits in the current buffer
+            while (pos < limit && buf[pos] != ',' && buf[pos] != '\n' && buf[pos] != '\r') {
+                pos++;
+            }
+            if (pos < limit) {
+                String s = new String(buf, start, pos - start);
+                skipComma();
+                return s;
+            }
+            // Field crosses a buffer boundary
+            quoted.setLength(0);
+            quoted.append(buf, start, pos - start);
+            while (fill() && buf[pos] != ',' && buf[pos] != '\n' && buf[pos] != '\r') {
+                quoted.append(buf[pos++]);
+            }
+            skipComma();
+            return quoted.toString();
+        }
+
+        private String readQuoted() throws IOException {
+            quoted.setLength(0);
+            while (fill()) {
+                char c = buf[pos++];
+                if (c == '"') {
+                    if (fill() && buf[pos] == '"') {
+                        quoted.append('"');
+                        pos++;
+                    } else {
+                        skipComma();
+                        return quoted.toString();
+                    }
+                } else {
+                    quoted.append(c);
+                }
+            }
+            throw new IOException("Line " + line + ": unterminated quoted field");
+        }
+
+        private void skipComma() throws IOException {
+            if (fill() && buf[pos] == ',') {
+                pos++;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
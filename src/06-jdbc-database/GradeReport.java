@@ -0,0 +1,179 @@
+import java.sql.*;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * GradeReport - Average and grade computed inside the database
+ *
+ * This class demonstrates:
+ * - Pushing calculations into SQL (integer average, CASE for the grade)
+ * - GROUP BY for per-grade counts, so only a handful of rows come back
+ * - Filtering by grade and limiting to the top N by average on the server
+ *
+ * Grades use the same thresholds as JDBCStudentDemo.gradeFor():
+ * A >= 85, B >= 65, C >= 35, otherwise F (on the integer average).
+ * Because average = sum DIV 3, a grade filter becomes a range on the sum
+ * of the three subjects, which needs no CASE in the WHERE clause.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class GradeReport {
+
+    static final int GRADE_A_MIN = 85;
+    static final int GRADE_B_MIN = 65;
+    static final int GRADE_C_MIN = 35;
+
+    private static final String SUM = "(m.subject1 + m.subject2 + m.subject3)";
+    private static final String AVERAGE = SUM + " DIV 3";
+    private static final String GRADE =
+        "CASE WHEN " + AVERAGE + " >= " + GRADE_A_MIN + " THEN 'A' " +
+        "WHEN " + AVERAGE + " >= " + GRADE_B_MIN + " THEN 'B' " +
+        "WHEN " + AVERAGE + " >= " + GRADE_C_MIN + " THEN 'C' ELSE 'F' END";
+    private static final String FROM_JOIN =
+        " FROM basicdata b INNER JOIN marks m ON b.stu_id = m.stu_id";
+
+    /**
+     * Report row projection; average and grade are computed by the server
+     */
+    static final RowMapper<GradeRow> ROW_MAPPER = RowMapper.typed(
+        (rs, at) -> new GradeRow(rs.getInt(at[0]), rs.getString(at[1]),
+                                 rs.getInt(at[2]), rs.getInt(at[3]), rs.getInt(at[4]),
+                                 rs.getInt(at[5]), rs.getString(at[6]).charAt(0)),
+        "b.stu_id", "b.stu_name", "m.subject1", "m.subject2", "m.subject3",
+        AVERAGE + " AS average", GRADE + " AS grade");
+
+    static final String COUNTS_SQL =
+        "SELECT " + GRADE + " AS grade, COUNT(*) AS students" + FROM_JOIN + " GROUP BY grade";
+
+    /**
+     * Which rows the report should return
+     */
+    static class Filter {
+        private char grade;   // 0 = any grade
+        private int topN;     // 0 = all rows
+
+        static Filter all() {
+            return new Filter();
+        }
+
+        Filter onlyGrade(char grade) {
+            if ("ABCF".indexOf(grade) < 0) {
+                throw new IllegalArgumentException("Grade must be A, B, C or F");
+            }
+            this.grade = grade;
+            return this;
+        }
+
+        Filter top(int n) {
+            if (n < 1) {
+                throw new IllegalArgumentException("Top N must be positive");
+            }
+            this.topN = n;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return (grade == 0 ? "all grades" : "grade " + grade)
+                 + (topN == 0 ? "" : ", top " + topN + " by average");
+        }
+    }
+
+    /**
+     * One student with marks, average and grade as computed by the server
+     */
+    static class GradeRow {
+        final int id;
+        final String name;
+        final int subject1;
+        final int subject2;
+        final int subject3;
+        final int average;
+        final char grade;
+
+        GradeRow(int id, String name, int subject1, int subject2, int subject3,
+                 int average, char grade) {
+            this.id = id;
+            this.name = name;
+            this.subject1 = subject1;
+            this.subject2 = subject2;
+            this.subject3 = subject3;
+            this.average = average;
+            this.grade = grade;
+        }
+    }
+
+    /**
+     * Build the row query for a filter; parameters are bound by {@link #forEach}
+     */
+    static String buildSql(Filter filter) {
+        StringBuilder sql = new StringBuilder(512)
+            .append("SELECT ").append(ROW_MAPPER.selectList())
+            .append(FROM_JOIN);
+        if (filter.grade != 0) {
+            sql.append(" WHERE ").append(SUM).append(" >= ? AND ").append(SUM).append(" < ?");
+        }
+        if (filter.topN > 0) {
+            sql.append(" ORDER BY average DESC, b.stu_id LIMIT ?");
+        } else {
+            sql.append(" ORDER BY b.stu_id");
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Run the report and hand each row to the consumer
+     * @return number of rows returned
+     */
+    static int forEach(Connection conn, Filter filter, Consumer<GradeRow> consumer)
+            throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.start("gradeReport");
+             PreparedStatement pstmt = timer.connected(conn).prepareStatement(buildSql(filter))) {
+            int index = 1;
+            if (filter.grade != 0) {
+                int[] range = sumRange(filter.grade);
+                pstmt.setInt(index++, range[0]);
+                pstmt.setInt(index++, range[1]);
+            }
+            if (filter.topN > 0) {
+                pstmt.setInt(index, filter.topN);
+            }
+
+            try (ResultSet rs = timer.executed(pstmt.executeQuery())) {
+                return (int) ROW_MAPPER.forEach(rs, consumer);
+            }
+        }
+    }
+
+    /**
+     * Number of students per grade (A, B, C, F in order; grades with no students are 0)
+     */
+    static Map<Character, Integer> countByGrade(Connection conn) throws SQLException {
+        Map<Character, Integer> counts = new TreeMap<>();
+        for (char g : new char[] { 'A', 'B', 'C', 'F' }) {
+            counts.put(g, 0);
+        }
+        try (QueryMetrics.Timer timer = QueryMetrics.start("gradeCounts");
+             PreparedStatement pstmt = timer.connected(conn).prepareStatement(COUNTS_SQL);
+             ResultSet rs = timer.executed(pstmt.executeQuery())) {
+            while (rs.next()) {
+                counts.put(rs.getString(1).charAt(0), rs.getInt(2));
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Half-open range [min, max) of subject sums that give the grade
+     */
+    static int[] sumRange(char grade) {
+        switch (grade) {
+            case 'A': return new int[] { GRADE_A_MIN * 3, Integer.MAX_VALUE };
+            case 'B': return new int[] { GRADE_B_MIN * 3, GRADE_A_MIN * 3 };
+            case 'C': return new int[] { GRADE_C_MIN * 3, GRADE_B_MIN * 3 };
+            default:  return new int[] { Integer.MIN_VALUE, GRADE_C_MIN * 3 };
+        }
+    }
+}
@@ -0,0 +1,364 @@
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * InMemoryStudentRepository - Primitive-keyed in-memory StudentRepository
+ *
+ * This class demonstrates:
+ * - Column-oriented storage: one array per column, rows addressed by slot
+ * - An int-keyed open-addressing index (IntIndexMap), so lookups never box
+ * - marks stored as three int columns plus a presence flag
+ * - Slot reuse through a free list, and a cached stu_id sort order for scans
+ * - A read/write lock: many concurrent readers, one writer
+ *
+ * It mirrors the MySQL schema's rules (primary key, marks foreign key with
+ * ON DELETE CASCADE), so it can stand in for the database in local runs
+ * and benchmarks. Visitors run under the read lock and must not modify
+ * the repository.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class InMemoryStudentRepository implements StudentRepository {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntIndexMap index;
+
+    private int[] ids;
+    private String[] names;
+    private String[] addresses;
+    private boolean[] live;
+    private boolean[] hasMarks;
+    private int[] subject1;
+    private int[] subject2;
+    private int[] subject3;
+
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    // Slots in stu_id order; rebuilt lazily after inserts and deletes
+    private volatile int[] sortedSlots;
+
+    InMemoryStudentRepository() {
+        this(1024);
+    }
+
+    InMemoryStudentRepository(int expectedStudents) {
+        int capacity = Math.max(16, expectedStudents);
+        index = new IntIndexMap(capacity);
+        ids = new int[capacity];
+        names = new String[capacity];
+        addresses = new String[capacity];
+        live = new boolean[capacity];
+        hasMarks = new boolean[capacity];
+        subject1 = new int[capacity];
+        subject2 = new int[capacity];
+        subject3 = new int[capacity];
+    }
+
+    /**
+     * Copy every student and marks row from another repository (e.g. MySQL)
+     */
+    static InMemoryStudentRepository snapshotOf(StudentRepository source) throws SQLException {
+        InMemoryStudentRepository copy = new InMemoryStudentRepository();
+        source.forEachStudent(copy::put);
+        source.forEachStudentWithMarks((id, name, address, s1, s2, s3) -> copy.putMarks(id, s1, s2, s3));
+        return copy;
+    }
+
+    @Override
+    public int insert(int id, String name, String address) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            if (index.containsKey(id)) {
+                throw duplicateStudent(id);
+            }
+            put(id, name, address);
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * All-or-nothing under one write lock, like a single transaction
+     */
+    @Override
+    public int insertAll(Collection<StudentRow> students) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            int done = 0;
+            for (StudentRow s : students) {
+                if (index.containsKey(s.getId())) {
+                    Iterator<StudentRow> undo = students.iterator();
+                    for (int i = 0; i < done; i++) {
+                        delete(undo.next().getId());
+                    }
+                    throw duplicateStudent(s.getId());
+                }
+                put(s.getId(), s.getName(), s.getAddress());
+                done++;
+            }
+            return done;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static SQLException duplicateStudent(int id) {
+        return new SQLIntegrityConstraintViolationException(
+            "Duplicate entry '" + id + "' for key 'basicdata.PRIMARY'", "23000", 1062);
+    }
+
+    @Override
+    public int upsert(int id, String name, String address) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot != IntIndexMap.MISSING
+                    && Objects.equals(names[slot], name)
+                    && Objects.equals(addresses[slot], address)) {
+                return 1;
+            }
+            put(id, name, address);
+            return slot == IntIndexMap.MISSING ? 1 : 2;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert or overwrite without the duplicate check (used for snapshots)
+     */
+    private void put(int id, String name, String address) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot == IntIndexMap.MISSING) {
+                slot = allocateSlot();
+                index.put(id, slot);
+                ids[slot] = id;
+                live[slot] = true;
+                hasMarks[slot] = false;
+                sortedSlots = null;
+            }
+            names[slot] = name;
+            addresses[slot] = address;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateName(int id, String newName) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot == IntIndexMap.MISSING) {
+                return 0;
+            }
+            names[slot] = newName;
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateAddress(int id, String newAddress) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot == IntIndexMap.MISSING) {
+                return 0;
+            }
+            addresses[slot] = newAddress;
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int delete(int id) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.remove(id);
+            if (slot == IntIndexMap.MISSING) {
+                return 0;
+            }
+            live[slot] = false;
+            hasMarks[slot] = false; // ON DELETE CASCADE
+            names[slot] = null;
+            addresses[slot] = null;
+            if (freeCount == freeSlots.length) {
+                freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+            sortedSlots = null;
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public StudentRow findById(int id) {
+        lock.readLock().lock();
+        try {
+            int slot = index.get(id);
+            return slot == IntIndexMap.MISSING ? null
+                 : new StudentRow(id, names[slot], addresses[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Allocation-free existence check
+     */
+    boolean contains(int id) {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachStudent(StudentVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int slot : sortedSlotsLocked()) {
+                visitor.visit(ids[slot], names[slot], addresses[slot]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int insertMarks(int id, int s1, int s2, int s3) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot == IntIndexMap.MISSING) {
+                throw new SQLIntegrityConstraintViolationException(
+                    "Cannot add or update a child row: a foreign key constraint fails " +
+                    "(marks.stu_id = " + id + ")", "23000", 1452);
+            }
+            if (hasMarks[slot]) {
+                throw new SQLIntegrityConstraintViolationException(
+                    "Duplicate entry '" + id + "' for key 'marks.PRIMARY'", "23000", 1062);
+            }
+            putMarks(id, s1, s2, s3);
+            return 1;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void putMarks(int id, int s1, int s2, int s3) {
+        lock.writeLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot != IntIndexMap.MISSING) {
+                hasMarks[slot] = true;
+                subject1[slot] = s1;
+                subject2[slot] = s2;
+                subject3[slot] = s3;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MarksRow findMarks(int id) {
+        lock.readLock().lock();
+        try {
+            int slot = index.get(id);
+            if (slot == IntIndexMap.MISSING || !hasMarks[slot]) {
+                return null;
+            }
+            return new MarksRow(id, subject1[slot], subject2[slot], subject3[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachStudentWithMarks(StudentMarksVisitor visitor) {
+        lock.readLock().lock();
+        try {
+            for (int slot : sortedSlotsLocked()) {
+                if (hasMarks[slot]) {
+                    visitor.visit(ids[slot], names[slot], addresses[slot],
+                                  subject1[slot], subject2[slot], subject3[slot]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Live slots sorted by stu_id. Called with the read lock held; several
+     * readers may rebuild the order at once, which is harmless.
+     */
+    private int[] sortedSlotsLocked() {
+        int[] order = sortedSlots;
+        if (order != null) {
+            return order;
+        }
+        // Pack (id, slot) into one long so a primitive sort orders by id
+        long[] packed = new long[index.size()];
+        int n = 0;
+        for (int slot = 0; slot < nextSlot; slot++) {
+            if (live[slot]) {
+                packed[n++] = ((long) ids[slot] << 32) | slot;
+            }
+        }
+        Arrays.sort(packed, 0, n);
+        order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = (int) packed[i];
+        }
+        sortedSlots = order;
+        return order;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            names = Arrays.copyOf(names, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+            live = Arrays.copyOf(live, capacity);
+            hasMarks = Arrays.copyOf(hasMarks, capacity);
+            subject1 = Arrays.copyOf(subject1, capacity);
+            subject2 = Arrays.copyOf(subject2, capacity);
+            subject3 = Arrays.copyOf(subject3, capacity);
+        }
+        return nextSlot++;
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.Arrays;
+
+/**
+ * IntIndexMap - Open-addressing hash map from int keys to int slot numbers
+ *
+ * This class demonstrates:
+ * - Linear probing over two parallel int arrays (no Integer boxing, no nodes)
+ * - Fibonacci hashing so sequential IDs spread over the table
+ * - Backward-shift deletion, which keeps probe chains short without tombstones
+ *
+ * Values must be non-negative; {@link #MISSING} (-1) marks an empty slot
+ * and is returned for absent keys. Not thread-safe; callers lock around it.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class IntIndexMap {
+
+    static final int MISSING = -1;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IntIndexMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    private int home(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    int get(int key) {
+        for (int i = home(key); ; i = (i + 1) & mask) {
+            int v = values[i];
+            if (v == MISSING || keys[i] == key) {
+                return v;
+            }
+        }
+    }
+
+    boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    /**
+     * @return the previous value, or MISSING
+     */
+    int put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative");
+        }
+        if ((size + 1) * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        for (int i = home(key); ; i = (i + 1) & mask) {
+            if (values[i] == MISSING) {
+                keys[i] = key;
+                values[i] = value;
+                size++;
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                int old = values[i];
+                values[i] = value;
+                return old;
+            }
+        }
+    }
+
+    /**
+     * @return the removed value, or MISSING
+     */
+    int remove(int key) {
+        int i = home(key);
+        while (true) {
+            if (values[i] == MISSING) {
+                return MISSING;
+            }
+            if (keys[i] == key) {
+                break;
+            }
+            i = (i + 1) & mask;
+        }
+        int removed = values[i];
+        values[i] = MISSING;
+        size--;
+
+        // Shift later entries of the probe chain back into the hole
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == MISSING) {
+                return removed;
+            }
+            int k = home(keys[j]);
+            boolean staysPut = i <= j ? (i < k && k <= j) : (i < k || k <= j);
+            if (!staysPut) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = MISSING;
+                i = j;
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        Arrays.fill(values, MISSING);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        size = 0;
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
@@ -1,4 +1,20 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.sql.*;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * JDBCStudentDemo - Complete JDBC Database Operations Example
@@ -24,20 +40,292 @@ public class JDBCStudentDemo {
     
     /**
      * Database Connection Manager
+     * 
+     * Hands out connections from a shared {@link ConnectionPool}, so the
+     * driver is loaded once and each query reuses an already-open session
+     * instead of paying for a TCP handshake and MySQL login every time.
+     * useServerPrepStmts=true makes each pooled PreparedStatement a
+     * server-side statement, parsed and planned once per connection.
+     * 
+     * Optional read replicas: getReadConnection() routes read-only work to
+     * the least busy healthy replica through a {@link ReplicaRouter}, while
+     * getConnection() always returns the primary. Reads stay on the
+     * primary for a short window after any write, so a change is never
+     * missing from the next read, whichever thread makes it.
+     * 
+     * Optional admission control: with configureAdmission(), every
+     * connection first needs a permit from a {@link ConcurrencyLimiter}
+     * (writes ahead of reads), so an overloaded database sees fewer
+     * concurrent queries and excess callers fail fast.
      */
     static class DbConnector {
-        private static final String URL = "jdbc:mysql://localhost:3306/student";
+        private static final String URL = "jdbc:mysql://localhost:3306/student?useCursorFetch=true&useServerPrepStmts=true";
         private static final String USERNAME = "root";
         private static final String PASSWORD = "1234";
         
+        private static ConnectionPool.Config poolConfig = new ConnectionPool.Config();
+        private static volatile ConnectionPool pool;
+        
+        private static String primaryUrl = URL;
+        private static List<String> replicaUrls = Collections.emptyList();
+        private static ReplicaRouter.Config routingConfig = new ReplicaRouter.Config();
+        private static volatile ReplicaRouter router;
+        private static volatile ConcurrencyLimiter limiter;
+        
+        /**
+         * Use a primary plus read replicas, e.g.
+         * configureEndpoints(URL, "jdbc:mysql://localhost:3307/student?useCursorFetch=true")
+         * (takes effect on the next pool creation; call shutdown() first to switch)
+         */
+        public static synchronized void configureEndpoints(String primary, String... replicas) {
+            primaryUrl = primary;
+            replicaUrls = List.of(replicas);
+        }
+        
+        /**
+         * Replace the sticky window and ejection settings (takes effect on
+         * the next router creation)
+         */
+        public static synchronized void configureReadRouting(ReplicaRouter.Config config) {
+            routingConfig = config;
+        }
+        
+        /**
+         * Limit concurrent database work adaptively (null turns it off);
+         * takes effect for connections checked out from now on
+         */
+        public static synchronized void configureAdmission(ConcurrencyLimiter.Config config) {
+            limiter = config == null ? null : new ConcurrencyLimiter(config);
+        }
+        
+        /**
+         * Replace the pool settings (takes effect on the next pool creation)
+         */
+        public static synchronized void configure(ConnectionPool.Config config) {
+            poolConfig = config;
+        }
+        
+        /**
+         * Maximum number of connections the pool will open
+         */
+        public static synchronized int maxPoolSize() {
+            return poolConfig.maxSize;
+        }
+        
+        /**
+         * Lazily create the shared pool (loads the driver and warms up connections)
+         */
+        static ConnectionPool pool() throws ClassNotFoundException, SQLException {
+            ConnectionPool p = pool;
+            if (p == null) {
+                synchronized (DbConnector.class) {
+                    p = pool;
+                    if (p == null) {
+                        Class.forName("com.mysql.cj.jdbc.Driver");
+                        p = new ConnectionPool(poolConfig, factoryFor(primaryUrl));
+                        pool = p;
+                    }
+                }
+            }
+            return p;
+        }
+        
+        /**
+         * Opens physical connections to url with the demo credentials
+         */
+        static ConnectionPool.ConnectionFactory factoryFor(String url) {
+            return () -> DriverManager.getConnection(url, USERNAME, PASSWORD);
+        }
+        
+        /**
+         * Settings used for every pool DbConnector creates
+         */
+        static synchronized ConnectionPool.Config poolConfig() {
+            return poolConfig;
+        }
+        
+        /**
+         * Replica router, or null when no replicas are configured
+         */
+        static ReplicaRouter router() {
+            ReplicaRouter r = router;
+            if (r == null && !replicaUrls.isEmpty()) {
+                synchronized (DbConnector.class) {
+                    r = router;
+                    if (r == null && !replicaUrls.isEmpty()) {
+                        r = new ReplicaRouter(routingConfig, poolConfig, replicaUrls,
+                                              DbConnector::factoryFor);
+                        router = r;
+                    }
+                }
+            }
+            return r;
+        }
+        
+        /**
+         * Whether getReadConnection may return a replica
+         */
+        static synchronized boolean hasReplicas() {
+            return !replicaUrls.isEmpty();
+        }
+        
         /**
          * Get database connection
-         * @return Connection object
+         * @return pooled Connection object (close() returns it to the pool)
          */
         public static Connection getConnection() {
+            return primary(ConcurrencyLimiter.Priority.WRITE);
+        }
+        
+        /**
+         * Primary connection for read-only work that must see the latest
+         * writes (cache misses, refreshes after a write): admitted as a read,
+         * so it does not queue ahead of writes
+         */
+        static Connection getPrimaryReadConnection() {
+            return primary(ConcurrencyLimiter.Priority.READ);
+        }
+        
+        private static Connection primary(ConcurrencyLimiter.Priority priority) {
+            ConcurrencyLimiter.Permit permit = admit(priority);
+            try {
+                return withPermit(primaryConnection(), permit);
+            } catch (RuntimeException e) {
+                release(permit, true);
+                throw e;
+            }
+        }
+        
+        /**
+         * Connection for read-only work: a replica when one is configured and
+         * healthy and nothing was written in the last moments, otherwise the
+         * primary (see ReplicaRouter)
+         */
+        public static Connection getReadConnection() {
+            ConcurrencyLimiter.Permit permit = admit(ConcurrencyLimiter.Priority.READ);
             try {
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+                ReplicaRouter r = router();
+                if (r != null) {
+                    Connection replica = r.acquire();
+                    if (replica != null) {
+                        return withPermit(replica, permit);
+                    }
+                }
+                return withPermit(primaryConnection(), permit);
+            } catch (RuntimeException e) {
+                release(permit, true);
+                throw e;
+            }
+        }
+        
+        /**
+         * A permit from the admission limiter, or null when there is none
+         */
+        private static ConcurrencyLimiter.Permit admit(ConcurrencyLimiter.Priority priority) {
+            ConcurrencyLimiter l = limiter;
+            if (l == null) {
+                return null;
+            }
+            try {
+                return l.acquire(priority);
+            } catch (SQLException e) {
+                System.err.println("❌ Connection failed: " + e.getMessage());
+                throw new RuntimeException(e);
+            }
+        }
+        
+        private static void release(ConcurrencyLimiter.Permit permit, boolean failed) {
+            if (permit != null) {
+                permit.release(failed);
+            }
+        }
+        
+        /**
+         * Wrap the connection so close() also returns the permit; the time
+         * spent in statement execute calls and commit (not the time the
+         * connection was held, nor reading a streamed result) is the
+         * limiter's latency sample
+         */
+        private static Connection withPermit(Connection conn, ConcurrencyLimiter.Permit permit) {
+            if (permit == null) {
+                return conn;
+            }
+            boolean[] failed = { false };
+            InvocationHandler handler = (proxy, method, args) -> {
+                if ("close".equals(method.getName()) && method.getParameterCount() == 0) {
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        permit.release(failed[0]);
+                    }
+                }
+                boolean commit = "commit".equals(method.getName());
+                long start = System.nanoTime();
+                try {
+                    Object result = method.invoke(conn, args);
+                    if (result instanceof Statement) {
+                        return timed((Statement) result, method.getReturnType(), permit, failed);
+                    }
+                    return result;
+                } catch (InvocationTargetException e) {
+                    throw overload(e.getCause(), failed);
+                } finally {
+                    if (commit) {
+                        permit.executed(System.nanoTime() - start);
+                    }
+                }
+            };
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+        }
+        
+        /**
+         * Statement (or Prepared/CallableStatement) whose execute calls are
+         * added to the permit's latency sample
+         */
+        private static Statement timed(Statement stmt, Class<?> type, ConcurrencyLimiter.Permit permit,
+                                       boolean[] failed) {
+            InvocationHandler handler = (proxy, method, args) -> {
+                boolean execute = method.getName().startsWith("execute");
+                long start = System.nanoTime();
+                try {
+                    return method.invoke(stmt, args);
+                } catch (InvocationTargetException e) {
+                    throw overload(e.getCause(), failed);
+                } finally {
+                    if (execute) {
+                        permit.executed(System.nanoTime() - start);
+                    }
+                }
+            };
+            return (Statement) Proxy.newProxyInstance(
+                Statement.class.getClassLoader(), new Class<?>[] { type }, handler);
+        }
+        
+        /**
+         * Mark the permit failed if the error suggests overload (timeout,
+         * lost connection); returns the error to rethrow
+         */
+        private static Throwable overload(Throwable cause, boolean[] failed) {
+            if (cause instanceof SQLTimeoutException
+                    || (cause instanceof SQLException && isConnectionError((SQLException) cause))) {
+                failed[0] = true;
+            }
+            return cause;
+        }
+        
+        /**
+         * SQLSTATE class 08: the connection itself failed
+         */
+        private static boolean isConnectionError(SQLException e) {
+            return e.getSQLState() != null && e.getSQLState().startsWith("08");
+        }
+        
+        private static Connection primaryConnection() {
+            try {
+                return pool().getConnection();
             } catch (ClassNotFoundException e) {
                 System.err.println("❌ MySQL JDBC Driver not found!");
                 System.err.println("   Add mysql-connector-java to your classpath");
@@ -47,22 +335,96 @@ public class JDBCStudentDemo {
                 throw new RuntimeException(e);
             }
         }
+        
+        /**
+         * Current pool statistics, or null if the pool has not been created yet
+         */
+        public static ConnectionPool.Stats getPoolStats() {
+            ConnectionPool p = pool;
+            return p == null ? null : p.stats();
+        }
+        
+        /**
+         * Prepare/reuse counts of the pooled statement caches, most reused first
+         */
+        public static List<ConnectionPool.StatementStats> getStatementStats() {
+            ConnectionPool p = pool;
+            return p == null ? Collections.emptyList() : p.statementStats();
+        }
+        
+        /**
+         * Admission limiter state, or null when admission control is off
+         */
+        public static ConcurrencyLimiter.Stats getAdmissionStats() {
+            ConcurrencyLimiter l = limiter;
+            return l == null ? null : l.stats();
+        }
+        
+        /**
+         * Per-replica health and load (empty when no replicas are configured)
+         */
+        public static List<ReplicaRouter.ReplicaStats> getReplicaStats() {
+            ReplicaRouter r = router;
+            return r == null ? Collections.emptyList() : r.stats();
+        }
+        
+        /**
+         * Close all idle connections and stop the pools
+         */
+        public static synchronized void shutdown() {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+            if (router != null) {
+                router.close();
+                router = null;
+            }
+        }
+    }
+    
+    /**
+     * Storage engine behind the CRUD and join operations (MySQL by default)
+     */
+    private static volatile StudentRepository repository = new JdbcStudentRepository();
+    
+    /**
+     * Swap the storage engine, e.g. to an InMemoryStudentRepository for
+     * local runs and benchmarks without a live database
+     */
+    public static void useRepository(StudentRepository newRepository) {
+        // Queued updates belong to the old database: flush them there first
+        disableWriteBehind();
+        repository = newRepository;
+        REPORT_CACHE.clear();
+    }
+    
+    static StudentRepository repository() {
+        return repository;
+    }
+    
+    /**
+     * Spread basicdata and marks over several MySQL databases by stu_id
+     * (each needs the schema from DATABASE_SETUP.md). Single-ID operations
+     * go to one shard; displayAllStudents and the join reports query all
+     * shards in parallel and merge the rows in stu_id order.
+     */
+    public static void useShards(ShardedStudentRepository.Partitioner partitioner, String... urls) {
+        try {
+            useRepository(ShardedStudentRepository.overMySql(partitioner, DbConnector.poolConfig(), urls));
+            System.out.println("✅ Using " + urls.length + " shards");
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        }
     }
     
     /**
      * Insert a new student record
      */
     public static void insertStudent(int id, String name, String address) {
-        String sql = "INSERT INTO basicdata (stu_id, stu_name, stu_address) VALUES (?, ?, ?)";
-        
-        try (Connection conn = DbConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, id);
-            pstmt.setString(2, name);
-            pstmt.setString(3, address);
-            
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = repository.insert(id, name, address);
             if (rowsAffected > 0) {
                 System.out.println("✅ Student inserted successfully!");
                 System.out.println("   ID: " + id + ", Name: " + name);
@@ -75,19 +437,135 @@ public class JDBCStudentDemo {
         }
     }
     
+    /**
+     * Insert the student, or update name and address if the ID already
+     * exists, in a single round trip (no lookup first)
+     */
+    public static void upsertStudent(int id, String name, String address) {
+        try {
+            int rowsAffected = repository.upsert(id, name, address);
+            if (rowsAffected == 2) {
+                System.out.println("✅ Student updated successfully!");
+            } else {
+                System.out.println("✅ Student saved successfully!");
+            }
+            System.out.println("   ID: " + id + ", Name: " + name);
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Insert many students using batched multi-row INSERTs
+     * (one transaction per chunk of batchSize rows)
+     */
+    public static BatchInserter.Result insertStudents(Collection<StudentRow> students) {
+        return insertStudents(students, BatchInserter.DEFAULT_BATCH_SIZE);
+    }
+    
+    public static BatchInserter.Result insertStudents(Collection<StudentRow> students, int batchSize) {
+        return bulkInsert(BatchInserter.BASICDATA, students, batchSize, "students", StudentRepository::insertAll);
+    }
+    
+    /**
+     * Insert many marks rows using batched multi-row INSERTs
+     */
+    public static BatchInserter.Result insertMarks(Collection<MarksRow> marks) {
+        return insertMarks(marks, BatchInserter.DEFAULT_BATCH_SIZE);
+    }
+    
+    public static BatchInserter.Result insertMarks(Collection<MarksRow> marks, int batchSize) {
+        return bulkInsert(BatchInserter.MARKS, marks, batchSize, "marks rows", StudentRepository::insertAllMarks);
+    }
+    
+    private interface BulkInsert<T> {
+        int insertAll(StudentRepository repo, Collection<T> rows) throws SQLException;
+    }
+    
+    /**
+     * Chunked inserts with per-chunk failures on the MySQL repository; other
+     * repositories (shards, in-memory) take the rows through insertAll
+     */
+    private static <T> BatchInserter.Result bulkInsert(BatchInserter.Target<T> target,
+                                                       Collection<T> rows, int batchSize,
+                                                       String label, BulkInsert<T> fallback) {
+        StudentRepository repo = repository;
+        long start = System.nanoTime();
+        
+        try {
+            BatchInserter.Result result;
+            if (repo instanceof JdbcStudentRepository) {
+                result = ((JdbcStudentRepository) repo).insertBatched(target, rows, batchSize);
+            } else {
+                int inserted = fallback.insertAll(repo, rows);
+                result = new BatchInserter.Result(inserted, 0, System.nanoTime() - start,
+                                                  Collections.emptyList());
+            }
+            System.out.printf("✅ Inserted %d %s (%.0f rows/s)%n",
+                result.rowsInserted, label, result.rowsPerSecond());
+            for (BatchInserter.ChunkFailure failure : result.failures) {
+                System.out.println("⚠️  " + failure);
+            }
+            return result;
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * The operations that run their own SQL through DbConnector (CSV load,
+     * archival, transactions, grade reports, snapshots, exports) only work on
+     * the default MySQL database; with shards or an in-memory repository
+     * active they would read or write a database the rest of the program is
+     * not using, so they refuse instead
+     */
+    private static boolean onDefaultDatabase(String operation) {
+        StudentRepository repo = repository;
+        if (repo instanceof JdbcStudentRepository
+                && ((JdbcStudentRepository) repo).source() == StudentDao.DEFAULT_SOURCE) {
+            return true;
+        }
+        System.err.println("❌ " + operation + " needs the MySQL repository (not sharded or in-memory)");
+        return false;
+    }
+    
+    /**
+     * Load basicdata and marks CSV files in parallel (restartable via checkpoint)
+     */
+    public static void loadFromCsv(Path basicdataCsv, Path marksCsv) {
+        if (!onDefaultDatabase("CSV load")) {
+            return;
+        }
+        CsvStudentLoader loader = new CsvStudentLoader(new CsvStudentLoader.Config());
+        
+        try {
+            for (CsvStudentLoader.PhaseReport report : loader.load(basicdataCsv, marksCsv)) {
+                System.out.println((report.succeeded() ? "✅ " : "❌ ") + report);
+            }
+        } catch (IOException e) {
+            System.err.println("❌ CSV Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ CSV load interrupted");
+        }
+    }
+    
     /**
      * Update student name by ID
      */
     public static void updateStudentName(int id, String newName) {
-        String sql = "UPDATE basicdata SET stu_name = ? WHERE stu_id = ?";
+        WriteBehindBuffer buffer = StudentDao.writeBehind;
+        if (buffer != null && buffer.updateName(id, newName)) {
+            System.out.println("✅ Student name update queued (write-behind)");
+            System.out.println("   ID: " + id + " → New Name: " + newName);
+            return;
+        }
         
-        try (Connection conn = DbConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, newName);
-            pstmt.setInt(2, id);
-            
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = repository.updateName(id, newName);
             if (rowsAffected > 0) {
                 System.out.println("✅ Student name updated successfully!");
                 System.out.println("   ID: " + id + " → New Name: " + newName);
@@ -104,15 +582,15 @@ public class JDBCStudentDemo {
      * Update student address by ID
      */
     public static void updateStudentAddress(int id, String newAddress) {
-        String sql = "UPDATE basicdata SET stu_address = ? WHERE stu_id = ?";
+        WriteBehindBuffer buffer = StudentDao.writeBehind;
+        if (buffer != null && buffer.updateAddress(id, newAddress)) {
+            System.out.println("✅ Student address update queued (write-behind)");
+            System.out.println("   ID: " + id + " → New Address: " + newAddress);
+            return;
+        }
         
-        try (Connection conn = DbConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setString(1, newAddress);
-            pstmt.setInt(2, id);
-            
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = repository.updateAddress(id, newAddress);
             if (rowsAffected > 0) {
                 System.out.println("✅ Student address updated successfully!");
                 System.out.println("   ID: " + id + " → New Address: " + newAddress);
@@ -125,18 +603,57 @@ public class JDBCStudentDemo {
         }
     }
     
+    /**
+     * Switch name/address updates to write-behind mode: changes are merged
+     * per ID and flushed every flushIntervalMillis or once maxPending IDs wait
+     */
+    public static synchronized void enableWriteBehind(long flushIntervalMillis, int maxPending) {
+        if (StudentDao.writeBehind != null) {
+            return;
+        }
+        if (!(repository instanceof JdbcStudentRepository)) {
+            System.err.println("❌ Write-behind needs the MySQL repository (not sharded or in-memory)");
+            return;
+        }
+        StudentDao.writeBehind = new WriteBehindBuffer(flushIntervalMillis, maxPending,
+            ((JdbcStudentRepository) repository).source());
+    }
+    
+    /**
+     * Flush pending updates and go back to writing through immediately
+     */
+    public static synchronized void disableWriteBehind() {
+        WriteBehindBuffer buffer = StudentDao.writeBehind;
+        if (buffer == null) {
+            return;
+        }
+        // Stay hooked while the final flush runs: the closed buffer refuses
+        // new updates (they write through), but direct writes still wait for
+        // its in-flight IDs and reads still see its queued values
+        try {
+            buffer.close();
+            StudentDao.writeBehind = null;
+            System.out.println("✅ Write-behind flushed: " + buffer.stats());
+        } catch (SQLException | RuntimeException e) {
+            // close() reopened it with the unflushed changes; the timer retries them
+            System.err.println("❌ Write-behind flush failed, still enabled: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Write-behind flush metrics, or null when write-behind is off
+     */
+    public static WriteBehindBuffer.Stats getWriteBehindStats() {
+        WriteBehindBuffer buffer = StudentDao.writeBehind;
+        return buffer == null ? null : buffer.stats();
+    }
+    
     /**
      * Delete student by ID
      */
     public static void deleteStudent(int id) {
-        String sql = "DELETE FROM basicdata WHERE stu_id = ?";
-        
-        try (Connection conn = DbConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            
-            pstmt.setInt(1, id);
-            
-            int rowsAffected = pstmt.executeUpdate();
+        try {
+            int rowsAffected = repository.delete(id);
             if (rowsAffected > 0) {
                 System.out.println("✅ Student deleted successfully!");
                 System.out.println("   ID: " + id);
@@ -150,24 +667,67 @@ public class JDBCStudentDemo {
     }
     
     /**
-     * Display student by ID
+     * Move students fromId..toId and their marks into the archive tables in
+     * small chunks, pausing between them so live queries are not held up
+     * (restartable via checkpoint)
      */
-    public static void displayStudentById(int id) {
-        String sql = "SELECT * FROM basicdata WHERE stu_id = ?";
-        
-        try (Connection conn = DbConnector.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+    public static void archiveStudents(int fromId, int toId) {
+        archiveStudents(fromId, toId, new StudentArchiver.Config());
+    }
+    
+    public static void archiveStudents(int fromId, int toId, StudentArchiver.Config config) {
+        if (!onDefaultDatabase("Archival")) {
+            return;
+        }
+        try {
+            StudentArchiver.Progress result = new StudentArchiver(config)
+                .archive(fromId, toId, p -> System.out.println((p.done ? "✅ " : "   ") + p));
+            if (result.students == 0) {
+                System.out.println("⚠️  No students found with IDs " + fromId + " to " + toId);
+            }
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("❌ Checkpoint Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ Archival interrupted (resume from checkpoint)");
+        }
+    }
+    
+    /**
+     * Run several basicdata/marks changes as one transaction with one commit;
+     * any error rolls all of them back (deadlocks are retried)
+     */
+    public static void runTransaction(StudentTransaction.Work work) {
+        if (!onDefaultDatabase("A transaction")) {
+            return;
+        }
+        try {
+            int statements = StudentTransaction.run(work);
+            System.out.println("✅ Transaction committed: " + statements + " statements");
             
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            System.err.println("   Transaction rolled back");
+        }
+    }
+    
+    /**
+     * Display student by ID (served from the read-through cache when possible)
+     */
+    public static void displayStudentById(int id) {
+        try {
+            StudentRow student = repository.findById(id);
             
-            if (rs.next()) {
+            if (student != null) {
                 System.out.println("\n" + "=".repeat(50));
                 System.out.println("Student Details:");
                 System.out.println("=".repeat(50));
-                System.out.println("ID:      " + rs.getInt("stu_id"));
-                System.out.println("Name:    " + rs.getString("stu_name"));
-                System.out.println("Address: " + rs.getString("stu_address"));
+                System.out.println("ID:      " + student.getId());
+                System.out.println("Name:    " + student.getName());
+                System.out.println("Address: " + student.getAddress());
                 System.out.println("=".repeat(50));
             } else {
                 System.out.println("⚠️  No student found with ID: " + id);
@@ -179,37 +739,216 @@ public class JDBCStudentDemo {
     }
     
     /**
-     * Display all students
+     * Many students in a few round trips instead of one per ID
+     * @return one entry per ID in the same order; null where no such ID exists
      */
-    public static void displayAllStudents() {
-        String sql = "SELECT * FROM basicdata ORDER BY stu_id";
-        
-        try (Connection conn = DbConnector.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+    public static StudentRow[] getStudents(int... ids) throws SQLException {
+        return repository.findByIds(ids);
+    }
+    
+    /**
+     * Marks of many students in a few round trips
+     * @return one entry per ID in the same order; null where there are no marks
+     */
+    public static MarksRow[] getMarks(int... ids) throws SQLException {
+        return repository.findMarksByIds(ids);
+    }
+    
+    /**
+     * Display a class list (e.g. 200 students) with one multi-get for the
+     * students and one for their marks
+     */
+    public static void displayStudentsById(int... ids) {
+        try (ReportRenderer report = new ReportRenderer(ReportRenderer.stdout(),
+                 ReportRenderer.Layout.FIXED, 90, MARKS_COLUMNS)) {
+            StudentRow[] students = getStudents(ids);
+            MarksRow[] marks = getMarks(ids);
+            report.title("Students by ID:").header();
             
-            System.out.println("\n" + "=".repeat(70));
-            System.out.println("All Students:");
-            System.out.println("=".repeat(70));
-            System.out.printf("%-10s %-25s %-30s%n", "ID", "Name", "Address");
-            System.out.println("-".repeat(70));
+            for (int i = 0; i < ids.length; i++) {
+                StudentRow s = students[i];
+                MarksRow m = marks[i];
+                if (s == null) {
+                    report.cell(ids[i]).cell("(not found)").cell("").cell("").cell("").cell("").endRow();
+                } else if (m == null) {
+                    report.cell(s.getId()).cell(s.getName()).cell(s.getAddress())
+                          .cell("-").cell("-").cell("-").endRow();
+                } else {
+                    report.cell(s.getId()).cell(s.getName()).cell(s.getAddress())
+                          .cell(m.getSubject1()).cell(m.getSubject2()).cell(m.getSubject3()).endRow();
+                }
+            }
+            report.footer();
             
-            boolean hasData = false;
-            while (rs.next()) {
-                hasData = true;
-                System.out.printf("%-10d %-25s %-30s%n",
-                    rs.getInt("stu_id"),
-                    rs.getString("stu_name"),
-                    rs.getString("stu_address"));
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("❌ Output Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Latency percentiles (connect / execute / fetch) for every operation so far
+     */
+    public static String getQueryMetricsSnapshot() {
+        return QueryMetrics.snapshotText();
+    }
+    
+    /**
+     * Hit / miss / eviction counters of the displayStudentById cache
+     */
+    public static StudentCache.Stats getStudentCacheStats() {
+        return StudentDao.CACHE.stats();
+    }
+    
+    /**
+     * Results of the join reports, dropped when basicdata or marks change
+     * (32 MB estimated, at most 5 minutes old)
+     */
+    static final ResultCache REPORT_CACHE = new ResultCache(32L << 20, 5 * 60_000);
+    
+    private static volatile boolean reportCacheEnabled = true;
+    
+    /**
+     * Turn the join report cache on or off (e.g. to benchmark the query itself)
+     */
+    public static void useReportCache(boolean enabled) {
+        reportCacheEnabled = enabled;
+        REPORT_CACHE.clear();
+    }
+    
+    /**
+     * Hit / miss / invalidation counters of the join report cache
+     */
+    public static ResultCache.Stats getReportCacheStats() {
+        return REPORT_CACHE.stats();
+    }
+    
+    /**
+     * True when source.read() goes to the primary, so a ChangeFeed version
+     * taken before a query is never newer than the rows it returns (the
+     * report cache and the HTTP list ETags rely on this)
+     */
+    static boolean readsFollowWrites(StudentDao.ConnectionSource source) {
+        return source != StudentDao.DEFAULT_SOURCE || !DbConnector.hasReplicas();
+    }
+    
+    /**
+     * The basicdata/marks join, from the report cache when nothing has been
+     * written since it was filled. An in-memory repository is not cached:
+     * it already is in memory, and its writes are not reported to ChangeFeed.
+     * Neither are reads that may come from a replica.
+     */
+    private static void forEachStudentWithMarks(StudentRepository.StudentMarksVisitor visitor)
+            throws SQLException {
+        StudentRepository repo = repository;
+        if (!reportCacheEnabled || repo instanceof InMemoryStudentRepository
+                || (repo instanceof JdbcStudentRepository
+                    && !readsFollowWrites(((JdbcStudentRepository) repo).source()))) {
+            repo.forEachStudentWithMarks(visitor);
+            return;
+        }
+        ResultCache.StudentMarksRows cached = REPORT_CACHE.get("studentsWithMarks", ResultCache.StudentMarksRows.class);
+        if (cached != null) {
+            cached.forEach(visitor);
+            return;
+        }
+        ResultCache.Ticket ticket = REPORT_CACHE.ticket("studentsWithMarks", ChangeFeed.STUDENTS, ChangeFeed.MARKS);
+        ResultCache.StudentMarksRows.Builder rows = new ResultCache.StudentMarksRows.Builder(REPORT_CACHE.maxEntryBytes());
+        repo.forEachStudentWithMarks((id, name, address, sub1, sub2, sub3) -> {
+            rows.visit(id, name, address, sub1, sub2, sub3);
+            visitor.visit(id, name, address, sub1, sub2, sub3);
+        });
+        ResultCache.StudentMarksRows result = rows.build();
+        REPORT_CACHE.put(ticket, result, result == null ? 0 : result.bytes());
+    }
+    
+    /**
+     * GradeReport rows for a filter, from the report cache when possible
+     * (never cached while reads may go to a replica)
+     */
+    private static void forEachGradeRow(GradeReport.Filter filter, Consumer<GradeReport.GradeRow> consumer)
+            throws SQLException {
+        if (!reportCacheEnabled || !readsFollowWrites(StudentDao.DEFAULT_SOURCE)) {
+            try (Connection conn = DbConnector.getReadConnection()) {
+                GradeReport.forEach(conn, filter, consumer);
             }
+            return;
+        }
+        String key = "gradeReport:" + filter;
+        @SuppressWarnings("unchecked")
+        List<GradeReport.GradeRow> cached = REPORT_CACHE.get(key, List.class);
+        if (cached != null) {
+            cached.forEach(consumer);
+            return;
+        }
+        ResultCache.Ticket ticket = REPORT_CACHE.ticket(key, ChangeFeed.STUDENTS, ChangeFeed.MARKS);
+        ResultCache.GradeRows rows = new ResultCache.GradeRows(REPORT_CACHE.maxEntryBytes());
+        try (Connection conn = DbConnector.getReadConnection()) {
+            GradeReport.forEach(conn, filter, row -> {
+                rows.accept(row);
+                consumer.accept(row);
+            });
+        }
+        REPORT_CACHE.put(ticket, rows.build(), rows.bytes());
+    }
+    
+    private static final ReportRenderer.Column[] STUDENT_COLUMNS = {
+        new ReportRenderer.Column("ID", 10),
+        new ReportRenderer.Column("Name", 25),
+        new ReportRenderer.Column("Address", 30)
+    };
+    
+    private static final ReportRenderer.Column[] MARKS_COLUMNS = {
+        new ReportRenderer.Column("ID", 5),
+        new ReportRenderer.Column("Name", 20),
+        new ReportRenderer.Column("Address", 20),
+        new ReportRenderer.Column("Subject1", 10),
+        new ReportRenderer.Column("Subject2", 10),
+        new ReportRenderer.Column("Subject3", 10)
+    };
+    
+    private static final ReportRenderer.Column[] GRADE_COLUMNS = {
+        new ReportRenderer.Column("ID", 5),
+        new ReportRenderer.Column("Name", 20),
+        new ReportRenderer.Column("Subject1", 10),
+        new ReportRenderer.Column("Subject2", 10),
+        new ReportRenderer.Column("Subject3", 10),
+        new ReportRenderer.Column("Average", 10),
+        new ReportRenderer.Column("Grade", 10)
+    };
+    
+    /**
+     * Display all students
+     */
+    public static void displayAllStudents() {
+        displayAllStudents(ReportRenderer.Layout.FIXED, ReportRenderer.stdout());
+    }
+    
+    /**
+     * Render all students in the given layout (closes the channel when done)
+     */
+    public static void displayAllStudents(ReportRenderer.Layout layout, WritableByteChannel out) {
+        try (ReportRenderer report = new ReportRenderer(out, layout, 70, STUDENT_COLUMNS)) {
+            report.title("All Students:").header();
+            
+            repository.forEachStudent((id, name, address) -> {
+                try {
+                    report.cell(id).cell(name).cell(address).endRow();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
             
-            if (!hasData) {
-                System.out.println("No students in database");
+            if (report.rowCount() == 0) {
+                report.note("No students in database");
             }
-            System.out.println("=".repeat(70));
+            report.footer();
             
         } catch (SQLException e) {
             System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("❌ Output Error: " + e.getMessage());
         }
     }
     
@@ -217,34 +956,27 @@ public class JDBCStudentDemo {
      * Display students with marks (JOIN operation)
      */
     public static void displayStudentsWithMarks() {
-        String sql = "SELECT b.stu_id, b.stu_name, b.stu_address, " +
-                     "m.subject1, m.subject2, m.subject3 " +
-                     "FROM basicdata b INNER JOIN marks m ON b.stu_id = m.stu_id";
-        
-        try (Connection conn = DbConnector.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            System.out.println("\n" + "=".repeat(90));
-            System.out.println("Students with Marks:");
-            System.out.println("=".repeat(90));
-            System.out.printf("%-5s %-20s %-20s %-10s %-10s %-10s%n",
-                "ID", "Name", "Address", "Subject1", "Subject2", "Subject3");
-            System.out.println("-".repeat(90));
+        displayStudentsWithMarks(ReportRenderer.Layout.FIXED, ReportRenderer.stdout());
+    }
+    
+    public static void displayStudentsWithMarks(ReportRenderer.Layout layout, WritableByteChannel out) {
+        try (ReportRenderer report = new ReportRenderer(out, layout, 90, MARKS_COLUMNS)) {
+            report.title("Students with Marks:").header();
             
-            while (rs.next()) {
-                System.out.printf("%-5d %-20s %-20s %-10d %-10d %-10d%n",
-                    rs.getInt("stu_id"),
-                    rs.getString("stu_name"),
-                    rs.getString("stu_address"),
-                    rs.getInt("subject1"),
-                    rs.getInt("subject2"),
-                    rs.getInt("subject3"));
-            }
-            System.out.println("=".repeat(90));
+            forEachStudentWithMarks((id, name, address, sub1, sub2, sub3) -> {
+                try {
+                    report.cell(id).cell(name).cell(address)
+                          .cell(sub1).cell(sub2).cell(sub3).endRow();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            report.footer();
             
         } catch (SQLException e) {
             System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("❌ Output Error: " + e.getMessage());
         }
     }
     
@@ -252,44 +984,356 @@ public class JDBCStudentDemo {
      * Display students with grades (calculated)
      */
     public static void displayStudentsWithGrades() {
-        String sql = "SELECT b.stu_name, m.stu_id, m.subject1, m.subject2, m.subject3 " +
-                     "FROM basicdata b INNER JOIN marks m ON b.stu_id = m.stu_id";
-        
-        try (Connection conn = DbConnector.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            
-            System.out.println("\n" + "=".repeat(90));
-            System.out.println("Students with Grades:");
-            System.out.println("=".repeat(90));
-            System.out.printf("%-5s %-20s %-10s %-10s %-10s %-10s %-10s%n",
-                "ID", "Name", "Subject1", "Subject2", "Subject3", "Average", "Grade");
-            System.out.println("-".repeat(90));
+        displayStudentsWithGrades(ReportRenderer.Layout.FIXED, ReportRenderer.stdout());
+    }
+    
+    public static void displayStudentsWithGrades(ReportRenderer.Layout layout, WritableByteChannel out) {
+        try (ReportRenderer report = new ReportRenderer(out, layout, 90, GRADE_COLUMNS)) {
+            report.title("Students with Grades:").header();
             
-            while (rs.next()) {
-                int id = rs.getInt("stu_id");
-                String name = rs.getString("stu_name");
-                int sub1 = rs.getInt("subject1");
-                int sub2 = rs.getInt("subject2");
-                int sub3 = rs.getInt("subject3");
-                
+            forEachStudentWithMarks((id, name, address, sub1, sub2, sub3) -> {
                 int sum = sub1 + sub2 + sub3;
                 int avg = sum / 3;
+                char grade = gradeFor(avg);
                 
-                char grade;
-                if (avg >= 85) grade = 'A';
-                else if (avg >= 65) grade = 'B';
-                else if (avg >= 35) grade = 'C';
-                else grade = 'F';
-                
-                System.out.printf("%-5d %-20s %-10d %-10d %-10d %-10d %-10c%n",
-                    id, name, sub1, sub2, sub3, avg, grade);
+                try {
+                    report.cell(id).cell(name).cell(sub1).cell(sub2).cell(sub3)
+                          .cell(avg).cell(grade).endRow();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            report.footer();
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("❌ Output Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Display students with grades computed by the database
+     * (e.g. GradeReport.Filter.all().onlyGrade('F') or .top(100))
+     */
+    public static void displayStudentsWithGrades(GradeReport.Filter filter) {
+        if (!onDefaultDatabase("The filtered grade report")) {
+            return;
+        }
+        try (ReportRenderer report = new ReportRenderer(ReportRenderer.stdout(),
+                 ReportRenderer.Layout.FIXED, 90, GRADE_COLUMNS)) {
+            report.title("Students with Grades (" + filter + "):").header();
+            
+            forEachGradeRow(filter, row -> {
+                try {
+                    report.cell(row.id).cell(row.name).cell(row.subject1).cell(row.subject2)
+                          .cell(row.subject3).cell(row.average).cell(row.grade).endRow();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            report.footer();
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("❌ Output Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Display how many students have each grade (counted by the database)
+     */
+    public static void displayGradeDistribution() {
+        if (!onDefaultDatabase("The grade distribution")) {
+            return;
+        }
+        try (Connection conn = DbConnector.getReadConnection()) {
+            Map<Character, Integer> counts = GradeReport.countByGrade(conn);
+            
+            System.out.println("\n" + "=".repeat(30));
+            System.out.println("Grade Distribution:");
+            System.out.println("=".repeat(30));
+            for (Map.Entry<Character, Integer> entry : counts.entrySet()) {
+                System.out.printf("%-10c %-10d%n", entry.getKey(), entry.getValue());
+            }
+            System.out.println("=".repeat(30));
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Copy the marks table into memory for fast repeated analytics; call
+     * refresh() on it to pick up later changes
+     */
+    public static MarksSnapshot loadMarksSnapshot() {
+        if (!onDefaultDatabase("The marks snapshot")) {
+            return null;
+        }
+        try {
+            MarksSnapshot snapshot = MarksSnapshot.load();
+            System.out.println("✅ Loaded marks snapshot: " + snapshot.size() + " students");
+            return snapshot;
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Display how many students have each grade (counted in memory)
+     */
+    public static void displayGradeDistribution(MarksSnapshot snapshot) {
+        try {
+            snapshot.refresh();
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            System.out.println("⚠️  Showing the last loaded marks");
+        }
+        Map<Character, Integer> counts = snapshot.gradeHistogram();
+        
+        System.out.println("\n" + "=".repeat(30));
+        System.out.println("Grade Distribution:");
+        System.out.println("=".repeat(30));
+        for (Map.Entry<Character, Integer> entry : counts.entrySet()) {
+            System.out.printf("%-10c %-10d%n", entry.getKey(), entry.getValue());
+        }
+        System.out.println("=".repeat(30));
+    }
+    
+    /**
+     * Rank every student by average mark once; call refresh() on it (or use
+     * displayLeaderboard) to apply later marks changes
+     */
+    public static Leaderboard loadLeaderboard() {
+        if (!onDefaultDatabase("The leaderboard")) {
+            return null;
+        }
+        try {
+            Leaderboard board = Leaderboard.load();
+            System.out.println("✅ Loaded leaderboard: " + board.size() + " students");
+            return board;
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Display the best n students by average mark
+     */
+    public static void displayLeaderboard(Leaderboard board, int n) {
+        try {
+            board.refresh();
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            System.out.println("⚠️  Showing the last loaded ranks");
+        }
+        
+        System.out.println("\n" + "=".repeat(40));
+        System.out.println("Top " + n + " Students:");
+        System.out.println("=".repeat(40));
+        System.out.printf("%-8s %-10s %-10s %-10s%n", "Rank", "ID", "Average", "Grade");
+        System.out.println("-".repeat(40));
+        for (Leaderboard.Entry entry : board.top(n)) {
+            System.out.printf("%-8d %-10d %-10d %-10c%n",
+                entry.rank, entry.id, entry.average(), entry.grade());
+        }
+        System.out.println("=".repeat(40));
+    }
+    
+    /**
+     * Display one student's rank and percentile
+     */
+    public static void displayRank(Leaderboard board, int id) {
+        Leaderboard.Entry entry = board.find(id);
+        if (entry != null) {
+            System.out.printf("✅ Student %d: rank %d of %d, average %d, ahead of %.1f%% of students%n",
+                id, entry.rank, board.size(), entry.average(), board.percentile(id));
+        } else {
+            System.out.println("⚠️  No marks found for student ID: " + id);
+        }
+    }
+    
+    /**
+     * Index every student name in memory for type-ahead search
+     */
+    public static NameIndex loadNameIndex() {
+        if (!onDefaultDatabase("The name index")) {
+            return null;
+        }
+        try {
+            NameIndex index = NameIndex.load();
+            System.out.println("✅ Indexed names of " + index.size() + " students");
+            return index;
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Display students whose name starts with, then contains, the text
+     */
+    public static void searchStudents(NameIndex index, String text) {
+        try {
+            index.refresh();
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            System.out.println("⚠️  Searching the last loaded names");
+        }
+        int limit = 20;
+        Set<Integer> shown = new LinkedHashSet<>();
+        for (int id : index.startingWith(text, limit)) {
+            shown.add(id);
+        }
+        for (int id : index.containing(text, limit)) {
+            if (shown.size() == limit) {
+                break;
             }
-            System.out.println("=".repeat(90));
+            shown.add(id);
+        }
+        if (shown.isEmpty()) {
+            System.out.println("⚠️  No student name contains: " + text);
+            return;
+        }
+        
+        System.out.println("\n" + "=".repeat(50));
+        System.out.println("Students matching \"" + text + "\":");
+        System.out.println("=".repeat(50));
+        System.out.printf("%-10s %-30s%n", "ID", "Name");
+        System.out.println("-".repeat(50));
+        for (int id : shown) {
+            System.out.printf("%-10d %-30s%n", id, index.nameOf(id));
+        }
+        System.out.println("=".repeat(50));
+    }
+    
+    /**
+     * Serve lookups, pages and the grades report as JSON over HTTP
+     * (stop it with close())
+     */
+    public static StudentHttpService startHttpService(int port) {
+        try {
+            StudentHttpService service = StudentHttpService.start(port);
+            System.out.println("✅ HTTP service listening on http://localhost:" + service.port()
+                               + (service.usesVirtualThreads() ? " (virtual threads)" : ""));
+            return service;
+        } catch (IOException e) {
+            System.err.println("❌ Server Error: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Grade for an average mark (A >= 85, B >= 65, C >= 35, otherwise F)
+     */
+    static char gradeFor(int avg) {
+        if (avg >= GradeReport.GRADE_A_MIN) return 'A';
+        if (avg >= GradeReport.GRADE_B_MIN) return 'B';
+        if (avg >= GradeReport.GRADE_C_MIN) return 'C';
+        return 'F';
+    }
+    
+    /**
+     * Stream all students into a sink without buffering the table in memory
+     */
+    public static long exportAllStudents(StreamingExporter.RowSink sink, int fetchSize) {
+        return export(StreamingExporter.STUDENTS_SQL, sink, fetchSize);
+    }
+    
+    /**
+     * Stream students joined with their marks into a sink
+     */
+    public static long exportStudentsWithMarks(StreamingExporter.RowSink sink, int fetchSize) {
+        return export(StreamingExporter.STUDENTS_WITH_MARKS_SQL, sink, fetchSize);
+    }
+    
+    /**
+     * Stream students with marks plus the calculated average and grade
+     */
+    public static long exportStudentsWithGrades(StreamingExporter.RowSink sink, int fetchSize) {
+        StreamingExporter.RowSink gradeSink = new StreamingExporter.RowSink() {
+            private Object[] extended;
+            
+            @Override
+            public void begin(String[] columns) throws IOException {
+                String[] withGrade = Arrays.copyOf(columns, columns.length + 2);
+                withGrade[columns.length] = "average";
+                withGrade[columns.length + 1] = "grade";
+                extended = new Object[withGrade.length];
+                sink.begin(withGrade);
+            }
+            
+            @Override
+            public void row(Object[] values) throws IOException {
+                System.arraycopy(values, 0, extended, 0, values.length);
+                int sum = ((Number) values[3]).intValue()
+                        + ((Number) values[4]).intValue()
+                        + ((Number) values[5]).intValue();
+                int avg = sum / 3;
+                extended[values.length] = avg;
+                extended[values.length + 1] = gradeFor(avg);
+                sink.row(extended);
+            }
+            
+            @Override
+            public void end(long rowCount) throws IOException {
+                sink.end(rowCount);
+            }
+            
+            @Override
+            public void close() throws IOException {
+                sink.close();
+            }
+        };
+        return export(StreamingExporter.STUDENTS_WITH_MARKS_SQL, gradeSink, fetchSize);
+    }
+    
+    /**
+     * Resumable keyset-paginated export of basicdata, starting after startAfterId
+     * @param withHeader false when resuming into the file an earlier run started
+     * @return the last stu_id exported (pass it back in to resume)
+     */
+    public static int exportAllStudentsResumable(StreamingExporter.RowSink sink, int startAfterId,
+                                                 boolean withHeader, int pageSize,
+                                                 IntConsumer checkpoint) {
+        if (!onDefaultDatabase("Export")) {
+            return startAfterId;
+        }
+        StreamingExporter exporter = new StreamingExporter(pageSize);
+        
+        try (Connection conn = DbConnector.getReadConnection();
+             StreamingExporter.RowSink out = sink) {
+            return exporter.exportStudentsResumable(conn, startAfterId, pageSize, withHeader,
+                                                    out, checkpoint);
             
         } catch (SQLException e) {
             System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("❌ Export Error: " + e.getMessage());
         }
+        return startAfterId;
+    }
+    
+    private static long export(String sql, StreamingExporter.RowSink sink, int fetchSize) {
+        if (!onDefaultDatabase("Export")) {
+            return -1;
+        }
+        StreamingExporter exporter = new StreamingExporter(fetchSize);
+        
+        try (Connection conn = DbConnector.getReadConnection();
+             StreamingExporter.RowSink out = sink) {
+            return exporter.export(conn, sql, out);
+            
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("❌ Export Error: " + e.getMessage());
+        }
+        return -1;
     }
     
     /**
@@ -313,36 +1357,117 @@ public class JDBCStudentDemo {
         
         // Uncomment to test operations:
         
+        // 0. Optional: run without MySQL on the in-memory engine
+        // useRepository(new InMemoryStudentRepository());
+        // Optional: two shards split by hash of stu_id (or Partitioner.range(1000))
+        // useShards(ShardedStudentRepository.Partitioner.hash(2),
+        //           "jdbc:mysql://localhost:3306/student_s0?useCursorFetch=true&useServerPrepStmts=true",
+        //           "jdbc:mysql://localhost:3306/student_s1?useCursorFetch=true&useServerPrepStmts=true");
+        
         // 1. Insert student
         // insertStudent(101, "John Doe", "123 Main St");
         // insertStudent(102, "Jane Smith", "456 Oak Ave");
+        // insertStudents(List.of(new StudentRow(103, "Ann Lee", "Matara"),
+        //                        new StudentRow(104, "Raj Kumar", "Jaffna")));
+        // loadFromCsv(Path.of("basicdata.csv"), Path.of("marks.csv"));
         
         // 2. Display all students
         // displayAllStudents();
         
-        // 3. Update student
+        // 3. Update student (optionally coalesced with write-behind)
+        // enableWriteBehind(200, 500);
         // updateStudentName(101, "John Updated");
         // updateStudentAddress(102, "789 New Address");
+        // disableWriteBehind();
+        // upsertStudent(105, "Nimal Perera", "Kandy");
+        // runTransaction(tx -> {
+        //     tx.upsertStudent(106, "Sara Silva", "Galle");
+        //     tx.upsertMarks(106, 78, 82, 69);
+        // });
         
         // 4. Display by ID
         // displayStudentById(101);
+        // displayStudentsById(101, 102, 103, 999); // one multi-get, missing IDs marked
+        // try (NameIndex names = loadNameIndex()) {
+        //     searchStudents(names, "smi");
+        // }
         
         // 5. Display with marks
         // displayStudentsWithMarks();
         
         // 6. Display with grades
         // displayStudentsWithGrades();
+        // displayStudentsWithGrades(GradeReport.Filter.all().onlyGrade('F'));
+        // displayStudentsWithGrades(GradeReport.Filter.all().top(100));
+        // displayGradeDistribution();
+        // try (MarksSnapshot marks = loadMarksSnapshot()) {
+        //     displayGradeDistribution(marks);
+        // }
+        // try (Leaderboard board = loadLeaderboard()) {
+        //     displayLeaderboard(board, 10);
+        //     displayRank(board, 101);
+        // }
         
-        // 7. Delete student
+        // 7. Streaming export (constant memory, any table size)
+        // exportAllStudents(StreamingExporter.stdoutSink(), 1000);
+        // exportStudentsWithGrades(StreamingExporter.fileSink(Path.of("grades.csv")), 1000);
+        
+        // 8. Delete student
         // deleteStudent(101);
+        // archiveStudents(2019000, 2019999); // whole cohort, chunk by chunk (archive tables needed)
+        // archiveStudents(2019000, 2019999, new StudentArchiver.Config().copyToArchive(false).maxRowsPerSecond(2000));
+        
+        // 9. Asynchronous lookups (I/O overlaps instead of adding up)
+        // try (AsyncStudentService async = new AsyncStudentService()) {
+        //     async.findAll(101, 102, 103).join().forEach(System.out::println);
+        // }
+        // StudentHttpService http = startHttpService(8080); // GET /students/101, /grades?top=10
+        
+        // 10. Read replicas (reports and exports; writes stay on the primary)
+        // DbConnector.configureEndpoints(DbConnector.URL,
+        //     "jdbc:mysql://localhost:3307/student?useCursorFetch=true&useServerPrepStmts=true");
+        // displayStudentsWithMarks();
+        // DbConnector.getReplicaStats().forEach(System.out::println);
+        
+        // Admission control: adaptive limit on concurrent queries, writes first
+        // DbConnector.configureAdmission(new ConcurrencyLimiter.Config().maxLimit(DbConnector.maxPoolSize()));
+        // System.out.println(DbConnector.getAdmissionStats());
+        
+        // 11. Connection pool and cache statistics
+        // System.out.println(DbConnector.getPoolStats());
+        // System.out.println(getStudentCacheStats());
+        // System.out.println(getReportCacheStats()); // join reports; useReportCache(false) to bypass
+        // DbConnector.getStatementStats().forEach(System.out::println);
+        // QueryMetrics.setSlowQueryThresholdMillis(100);
+        // System.out.println(getQueryMetricsSnapshot());
+        // DbConnector.shutdown();
         
         System.out.println("\nKey Concepts Demonstrated:");
         System.out.println("  ✓ Database connection management");
+        System.out.println("  ✓ Connection pooling (reuse instead of reconnect)");
+        System.out.println("  ✓ Read/write splitting across replicas");
+        System.out.println("  ✓ Adaptive (AIMD) admission control with load shedding");
+        System.out.println("  ✓ Sharding by stu_id with scatter-gather merges");
         System.out.println("  ✓ PreparedStatement (SQL injection prevention)");
+        System.out.println("  ✓ Batched bulk inserts (one transaction per chunk)");
         System.out.println("  ✓ CRUD operations (Create, Read, Update, Delete)");
-        System.out.println("  ✓ ResultSet handling");
+        System.out.println("  ✓ Multi-get lookups (parallel IN-list chunks, caller's order)");
+        System.out.println("  ✓ ResultSet handling (typed, index-resolved row mappers)");
+        System.out.println("  ✓ Buffered report rendering (fixed-width, CSV, TSV)");
+        System.out.println("  ✓ Streaming cursors and keyset pagination");
         System.out.println("  ✓ Database joins (INNER JOIN)");
+        System.out.println("  ✓ Byte-bounded result cache with table-level invalidation");
+        System.out.println("  ✓ Repository interface with JDBC and in-memory engines");
         System.out.println("  ✓ Try-with-resources (auto-closing connections)");
+        System.out.println("  ✓ Upserts and multi-statement transactions");
+        System.out.println("  ✓ Throttled, checkpointed archival in short per-chunk transactions");
+        System.out.println("  ✓ CompletableFuture-based asynchronous data access");
+        System.out.println("  ✓ JSON over HTTP with streaming and ETags");
         System.out.println("  ✓ Calculated fields (grades from marks)");
+        System.out.println("  ✓ Server-side aggregation (CASE, GROUP BY, LIMIT)");
+        System.out.println("  ✓ Columnar in-memory snapshot with parallel grade counts");
+        System.out.println("  ✓ Order-statistic tree leaderboard (rank, top-N, percentile)");
+        System.out.println("  ✓ Trigram index for prefix and substring name search");
+        System.out.println("  ✓ Per-query latency percentiles and slow-query log");
     }
 }
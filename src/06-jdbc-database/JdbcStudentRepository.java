@@ -0,0 +1,188 @@
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * JdbcStudentRepository - StudentRepository backed by MySQL
+ *
+ * basicdata operations go through StudentDao (cache, write-behind overlay);
+ * marks and the join are queried here with forward-only streaming cursors.
+ * Reads of marks and the join use the source's read connection, so they
+ * go to a replica when one is configured. Rows are read through RowMapper;
+ * scans reuse one holder per query, so they allocate nothing per row.
+ * Every query is timed through QueryMetrics; for scans the fetch phase
+ * includes the time the visitor spends on each row.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class JdbcStudentRepository implements StudentRepository {
+
+    static final String INSERT_MARKS_SQL =
+        "INSERT INTO marks (stu_id, subject1, subject2, subject3) VALUES (?, ?, ?, ?)";
+    static final String FIND_MARKS_SQL =
+        "SELECT " + RowMapper.MARKS.selectList() + " FROM marks WHERE stu_id = ?";
+
+    private final StudentDao.ConnectionSource source;
+
+    /**
+     * Repository on the shared DbConnector pool
+     */
+    JdbcStudentRepository() {
+        this(StudentDao.DEFAULT_SOURCE);
+    }
+
+    /**
+     * Repository on another database, e.g. one shard
+     */
+    JdbcStudentRepository(StudentDao.ConnectionSource source) {
+        this.source = source;
+    }
+
+    StudentDao.ConnectionSource source() {
+        return source;
+    }
+
+    @Override
+    public int insert(int id, String name, String address) throws SQLException {
+        return StudentDao.insert(source, id, name, address);
+    }
+
+    /**
+     * Multi-row INSERTs through BatchInserter (one transaction per chunk);
+     * chunks before a failed one stay committed
+     */
+    @Override
+    public int insertAll(Collection<StudentRow> students) throws SQLException {
+        return requireAll(insertBatched(BatchInserter.BASICDATA, students, BatchInserter.DEFAULT_BATCH_SIZE),
+                          students.size());
+    }
+
+    @Override
+    public int insertAllMarks(Collection<MarksRow> marks) throws SQLException {
+        return requireAll(insertBatched(BatchInserter.MARKS, marks, BatchInserter.DEFAULT_BATCH_SIZE),
+                          marks.size());
+    }
+
+    /**
+     * Like insertAll/insertAllMarks, but failed chunks are reported in the
+     * result instead of thrown (JDBCStudentDemo.insertStudents/insertMarks)
+     */
+    <T> BatchInserter.Result insertBatched(BatchInserter.Target<T> target, Collection<T> rows,
+                                           int batchSize) throws SQLException {
+        BatchInserter inserter = new BatchInserter(batchSize, BatchInserter.DEFAULT_ROWS_PER_STATEMENT);
+        try (QueryMetrics.Timer timer = QueryMetrics.start("bulkInsert." + target.table);
+             Connection conn = timer.connected(source.primary())) {
+            return timer.executed(inserter.insertAll(conn, target, rows));
+        } finally {
+            boolean students = target == BatchInserter.BASICDATA;
+            for (T row : rows) {
+                int id = target.idOf.applyAsInt(row);
+                if (students) {
+                    StudentDao.discardPending(id);
+                    StudentDao.CACHE.invalidate(id);
+                    ChangeFeed.STUDENTS.changed(id);
+                } else {
+                    ChangeFeed.MARKS.changed(id);
+                }
+            }
+        }
+    }
+
+    private static int requireAll(BatchInserter.Result result, int rows) throws SQLException {
+        if (result.rowsFailed > 0) {
+            throw new SQLException(result.rowsFailed + " of " + rows
+                                   + " rows failed; first: " + result.failures.get(0));
+        }
+        return result.rowsInserted;
+    }
+
+    @Override
+    public int upsert(int id, String name, String address) throws SQLException {
+        return StudentDao.upsert(source, id, name, address);
+    }
+
+    @Override
+    public int updateName(int id, String newName) throws SQLException {
+        return StudentDao.updateName(source, id, newName);
+    }
+
+    @Override
+    public int updateAddress(int id, String newAddress) throws SQLException {
+        return StudentDao.updateAddress(source, id, newAddress);
+    }
+
+    @Override
+    public int delete(int id) throws SQLException {
+        return StudentDao.delete(source, id);
+    }
+
+    @Override
+    public StudentRow findById(int id) throws SQLException {
+        return StudentDao.findById(source, id);
+    }
+
+    @Override
+    public StudentRow[] findByIds(int... ids) throws SQLException {
+        return StudentDao.findByIds(source, ids);
+    }
+
+    @Override
+    public void forEachStudent(StudentVisitor visitor) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.start("allStudents");
+             Connection conn = timer.connected(source.read());
+             Statement stmt = StreamingExporter.streamingStatement(conn);
+             ResultSet rs = timer.executed(stmt.executeQuery(StreamingExporter.STUDENTS_SQL))) {
+            RowMapper.STUDENT_SCAN.forEach(rs, s -> visitor.visit(s.id, s.name, s.address));
+        }
+    }
+
+    @Override
+    public int insertMarks(int id, int subject1, int subject2, int subject3) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.start("insertMarks");
+             Connection conn = timer.connected(source.primary());
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_MARKS_SQL)) {
+            pstmt.setInt(1, id);
+            pstmt.setInt(2, subject1);
+            pstmt.setInt(3, subject2);
+            pstmt.setInt(4, subject3);
+            return timer.executed(pstmt.executeUpdate());
+        } finally {
+            ChangeFeed.MARKS.changed(id);
+        }
+    }
+
+    @Override
+    public MarksRow findMarks(int id) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.start("findMarks");
+             Connection conn = timer.connected(source.read());
+             PreparedStatement pstmt = conn.prepareStatement(FIND_MARKS_SQL)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = timer.executed(pstmt.executeQuery())) {
+                return RowMapper.MARKS.first(rs);
+            }
+        }
+    }
+
+    @Override
+    public MarksRow[] findMarksByIds(int... ids) throws SQLException {
+        int[] unique = StudentDao.distinct(ids);
+        MarksRow[] rows = new MarksRow[unique.length];
+        for (MarksRow row : StudentDao.findAllById(source, false, RowMapper.MARKS, "marks",
+                                                   unique, unique.length)) {
+            rows[Arrays.binarySearch(unique, row.getId())] = row;
+        }
+        return StudentDao.inCallerOrder(ids, unique, rows, new MarksRow[ids.length]);
+    }
+
+    @Override
+    public void forEachStudentWithMarks(StudentMarksVisitor visitor) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.start("studentsWithMarks");
+             Connection conn = timer.connected(source.read());
+             Statement stmt = StreamingExporter.streamingStatement(conn);
+             ResultSet rs = timer.executed(stmt.executeQuery(StreamingExporter.STUDENTS_WITH_MARKS_SQL))) {
+            RowMapper.STUDENT_MARKS_SCAN.forEach(rs, s -> visitor.visit(s.id, s.name, s.address,
+                                                                        s.subject1, s.subject2, s.subject3));
+        }
+    }
+}
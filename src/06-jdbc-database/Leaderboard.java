@@ -0,0 +1,459 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Leaderboard - Students ranked by average mark, kept up to date in memory
+ *
+ * This class demonstrates:
+ * - An order-statistic tree: a treap whose nodes also store their subtree
+ *   size, so rank and "n-th place" are O(log n) walks from the root
+ * - Node fields in parallel int arrays with a free list (no object per student)
+ * - O(log n) updates when a student's marks change, instead of re-running
+ *   the INNER JOIN and sorting every time
+ * - A read/write lock: many rank queries run at once, updates take turns;
+ *   a full reload builds a new tree unlocked and only swaps it in locked
+ *
+ * Order: highest average first, ties by lower stu_id. Students are compared
+ * by the sum of their three marks (the exact average times 3), so two
+ * students with the same integer average are still ranked correctly.
+ *
+ * The board is loaded once; refresh() then re-reads only the students whose
+ * marks were changed through this program (see ChangeFeed.MARKS).
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class Leaderboard implements AutoCloseable {
+
+    private static final int NIL = 0; // slot 0 is the empty tree
+
+    /**
+     * One student's position on the board
+     */
+    static final class Entry {
+        final int rank;
+        final int id;
+        final int total;
+
+        Entry(int rank, int id, int total) {
+            this.rank = rank;
+            this.id = id;
+            this.total = total;
+        }
+
+        int average() {
+            return total / 3;
+        }
+
+        char grade() {
+            return JDBCStudentDemo.gradeFor(average());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("#%d %d (avg %d, %c)", rank, id, average(), grade());
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeFeed.Log changes = ChangeFeed.MARKS.track();
+
+    private Tree tree = new Tree(16); // guarded by lock
+
+    private Leaderboard() {
+    }
+
+    /**
+     * Read every student's marks and start following changes
+     */
+    static Leaderboard load() throws SQLException {
+        Leaderboard board = new Leaderboard();
+        try {
+            board.reload();
+        } catch (SQLException | RuntimeException e) {
+            board.close();
+            throw e;
+        }
+        return board;
+    }
+
+    /**
+     * Apply the marks changes made since the last refresh (after a CSV
+     * load, re-read everything)
+     * @return number of students re-read
+     */
+    synchronized int refresh() throws SQLException {
+        if (changes.takeReset()) {
+            return reload();
+        }
+        int[] changed = changes.drain();
+        if (changed.length == 0) {
+            return 0;
+        }
+        // Read outside the lock; readers are only blocked while applying
+        IntIndexMap rowById = new IntIndexMap(changed.length);
+        int[] current = new int[changed.length];
+        try {
+            StudentDao.forEachById(RowMapper.MARKS_SCAN, "marks", changed, changed.length, m -> {
+                int row = rowById.get(m.id);
+                if (row == IntIndexMap.MISSING) {
+                    row = rowById.size();
+                    rowById.put(m.id, row);
+                }
+                current[row] = m.subject1 + m.subject2 + m.subject3;
+            });
+        } catch (SQLException | RuntimeException e) {
+            changes.requeue(changed);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int id : changed) {
+                int row = rowById.get(id);
+                if (row != IntIndexMap.MISSING) {
+                    tree.put(id, current[row]);
+                } else {
+                    tree.remove(id);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return changed.length;
+    }
+
+    /**
+     * Rebuild the tree from the whole marks table
+     * @return number of students loaded
+     */
+    private synchronized int reload() throws SQLException {
+        changes.takeReset();
+        changes.drain();
+        int[][] rows = { new int[1024], new int[1024] }; // stu_id, total
+        int[] count = { 0 };
+        // Read the primary: a lagging replica could miss writes drained above
+        try (Connection conn = JDBCStudentDemo.DbConnector.getPrimaryReadConnection();
+             Statement stmt = StreamingExporter.streamingStatement(conn);
+             ResultSet rs = stmt.executeQuery(MarksSnapshot.ALL_SQL)) {
+            RowMapper.MARKS_SCAN.forEach(rs, m -> {
+                if (count[0] == rows[0].length) {
+                    rows[0] = Arrays.copyOf(rows[0], count[0] * 2);
+                    rows[1] = Arrays.copyOf(rows[1], count[0] * 2);
+                }
+                rows[0][count[0]] = m.id;
+                rows[1][count[0]] = m.subject1 + m.subject2 + m.subject3;
+                count[0]++;
+            });
+        }
+        // Only refresh() and reload() change the tree, and both hold this
+        // object's monitor, so the new one can be built without the lock
+        Tree fresh = new Tree(count[0] + 1);
+        for (int i = 0; i < count[0]; i++) {
+            fresh.put(rows[0][i], rows[1][i]);
+        }
+        lock.writeLock().lock();
+        try {
+            tree = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return count[0];
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return tree.size[tree.root];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The first n places
+     */
+    List<Entry> top(int n) {
+        lock.readLock().lock();
+        try {
+            Tree t = tree;
+            List<Entry> entries = new ArrayList<>(Math.min(n, t.size[t.root]));
+            int[] stack = new int[64];
+            int depth = 0;
+            int node = t.root;
+            while ((node != NIL || depth > 0) && entries.size() < n) {
+                while (node != NIL) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = node;
+                    node = t.left[node];
+                }
+                node = stack[--depth];
+                entries.add(new Entry(entries.size() + 1, t.ids[node], t.totals[node]));
+                node = t.right[node];
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the student's place (1 = best), or null if they have no marks
+     */
+    Entry find(int id) {
+        lock.readLock().lock();
+        try {
+            Tree t = tree;
+            int node = t.nodeById.get(id);
+            return node == IntIndexMap.MISSING ? null
+                : new Entry(t.countBefore(t.totals[node], id) + 1, id, t.totals[node]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the student at the given place (1 = best), or null if out of range
+     */
+    Entry at(int rank) {
+        lock.readLock().lock();
+        try {
+            Tree t = tree;
+            if (rank < 1 || rank > t.size[t.root]) {
+                return null;
+            }
+            int node = t.root;
+            int k = rank - 1;
+            while (true) {
+                int leftSize = t.size[t.left[node]];
+                if (k < leftSize) {
+                    node = t.left[node];
+                } else if (k == leftSize) {
+                    return new Entry(rank, t.ids[node], t.totals[node]);
+                } else {
+                    k -= leftSize + 1;
+                    node = t.right[node];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Percentage of the other students with a lower average than this student
+     * @return 0..100, or -1 if the student has no marks
+     */
+    double percentile(int id) {
+        lock.readLock().lock();
+        try {
+            Tree t = tree;
+            int node = t.nodeById.get(id);
+            if (node == IntIndexMap.MISSING) {
+                return -1;
+            }
+            int total = t.size[t.root];
+            if (total == 1) {
+                return 100.0;
+            }
+            int below = total - t.countBefore(t.totals[node], Integer.MAX_VALUE);
+            return 100.0 * below / (total - 1);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Treap nodes in parallel int arrays; used under the write lock, or
+     * unlocked while a reload builds a tree nobody else can see yet
+     */
+    private static final class Tree {
+        private int[] left;
+        private int[] right;
+        private int[] size;
+        private int[] priority;
+        private int[] ids;
+        private int[] totals;
+        private int used = 1;
+        private int freeList = NIL;
+        private int root = NIL;
+        private final IntIndexMap nodeById;
+
+        Tree(int capacity) {
+            capacity = Math.max(capacity, 2);
+            left = new int[capacity];
+            right = new int[capacity];
+            size = new int[capacity];
+            priority = new int[capacity];
+            ids = new int[capacity];
+            totals = new int[capacity];
+            nodeById = new IntIndexMap(capacity);
+        }
+
+        /**
+         * true if (total, id) comes before node in leaderboard order
+         */
+        private boolean before(int total, int id, int node) {
+            return total > totals[node] || (total == totals[node] && id < ids[node]);
+        }
+
+        /**
+         * Number of students ranked ahead of (total, id)
+         */
+        private int countBefore(int total, int id) {
+            int count = 0;
+            int node = root;
+            while (node != NIL) {
+                if (before(total, id, node) || (total == totals[node] && id == ids[node])) {
+                    node = left[node];
+                } else {
+                    count += size[left[node]] + 1;
+                    node = right[node];
+                }
+            }
+            return count;
+        }
+
+        private void put(int id, int total) {
+            int old = nodeById.get(id);
+            if (old != IntIndexMap.MISSING) {
+                if (totals[old] == total) {
+                    return;
+                }
+                root = delete(root, totals[old], id);
+            }
+            int node = newNode(id, total);
+            nodeById.put(id, node);
+            root = insert(root, node);
+        }
+
+        private void remove(int id) {
+            int node = nodeById.remove(id);
+            if (node != IntIndexMap.MISSING) {
+                root = delete(root, totals[node], id);
+            }
+        }
+
+        private int insert(int node, int fresh) {
+            if (node == NIL) {
+                return fresh;
+            }
+            if (priority[fresh] > priority[node]) {
+                int[] parts = split(node, totals[fresh], ids[fresh]);
+                left[fresh] = parts[0];
+                right[fresh] = parts[1];
+                update(fresh);
+                return fresh;
+            }
+            if (before(totals[fresh], ids[fresh], node)) {
+                left[node] = insert(left[node], fresh);
+            } else {
+                right[node] = insert(right[node], fresh);
+            }
+            update(node);
+            return node;
+        }
+
+        private int delete(int node, int total, int id) {
+            if (node == NIL) {
+                return NIL;
+            }
+            if (totals[node] == total && ids[node] == id) {
+                int merged = merge(left[node], right[node]);
+                free(node);
+                return merged;
+            }
+            if (before(total, id, node)) {
+                left[node] = delete(left[node], total, id);
+            } else {
+                right[node] = delete(right[node], total, id);
+            }
+            update(node);
+            return node;
+        }
+
+        /**
+         * @return { nodes before (total, id), the rest }
+         */
+        private int[] split(int node, int total, int id) {
+            if (node == NIL) {
+                return new int[] { NIL, NIL };
+            }
+            if (before(total, id, node)) {
+                int[] parts = split(left[node], total, id);
+                left[node] = parts[1];
+                update(node);
+                return new int[] { parts[0], node };
+            }
+            int[] parts = split(right[node], total, id);
+            right[node] = parts[0];
+            update(node);
+            return new int[] { node, parts[1] };
+        }
+
+        /**
+         * Join two trees where every node of a comes before every node of b
+         */
+        private int merge(int a, int b) {
+            if (a == NIL || b == NIL) {
+                return a == NIL ? b : a;
+            }
+            if (priority[a] > priority[b]) {
+                right[a] = merge(right[a], b);
+                update(a);
+                return a;
+            }
+            left[b] = merge(a, left[b]);
+            update(b);
+            return b;
+        }
+
+        private void update(int node) {
+            size[node] = size[left[node]] + size[right[node]] + 1;
+        }
+
+        private int newNode(int id, int total) {
+            int node;
+            if (freeList != NIL) {
+                node = freeList;
+                freeList = left[node];
+            } else {
+                if (used == ids.length) {
+                    int capacity = used * 2;
+                    left = Arrays.copyOf(left, capacity);
+                    right = Arrays.copyOf(right, capacity);
+                    size = Arrays.copyOf(size, capacity);
+                    priority = Arrays.copyOf(priority, capacity);
+                    ids = Arrays.copyOf(ids, capacity);
+                    totals = Arrays.copyOf(totals, capacity);
+                }
+                node = used++;
+            }
+            left[node] = NIL;
+            right[node] = NIL;
+            size[node] = 1;
+            priority[node] = ThreadLocalRandom.current().nextInt();
+            ids[node] = id;
+            totals[node] = total;
+            return node;
+        }
+
+        private void free(int node) {
+            left[node] = freeList;
+            freeList = node;
+        }
+    }
+
+    /**
+     * Stop following marks changes
+     */
+    @Override
+    public void close() {
+        changes.close();
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * MarksRow - One row of the marks table
+ *
+ * Immutable value object used by the bulk and typed data-access APIs.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class MarksRow {
+    private final int id;
+    private final int subject1;
+    private final int subject2;
+    private final int subject3;
+
+    MarksRow(int id, int subject1, int subject2, int subject3) {
+        this.id = id;
+        this.subject1 = subject1;
+        this.subject2 = subject2;
+        this.subject3 = subject3;
+    }
+
+    public int getId() { return id; }
+    public int getSubject1() { return subject1; }
+    public int getSubject2() { return subject2; }
+    public int getSubject3() { return subject3; }
+
+    @Override
+    public String toString() {
+        return String.format("MarksRow[ID=%d, Subjects=%d/%d/%d]", id, subject1, subject2, subject3);
+    }
+}
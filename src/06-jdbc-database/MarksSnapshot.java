@@ -0,0 +1,409 @@
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * MarksSnapshot - Column-oriented in-memory copy of the marks table
+ *
+ * This class demonstrates:
+ * - Columnar storage: one int[] per column (stu_id, subject1..3), sorted by stu_id
+ * - Tight, branch-free loops over primitive arrays that the JIT compiles
+ *   to SIMD instructions
+ * - Splitting the arrays into chunks that are processed in parallel on all cores
+ * - Incremental refresh: only changed IDs and newly appended rows are re-read
+ *
+ * Grades are classified on the sum of the three subjects, which gives the
+ * same result as the integer average (A >= 85*3, B >= 65*3, C >= 35*3)
+ * with no division in the hot loop.
+ *
+ * Incremental refresh picks up:
+ * - every marks change made through this program (reported to
+ *   ChangeFeed.MARKS; a CSV load triggers a full re-read);
+ * - rows that other programs append with a stu_id above the current maximum.
+ * Other external changes need refreshFull().
+ * Readers always see a complete snapshot: a refresh builds new arrays and
+ * swaps them in at once.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class MarksSnapshot implements AutoCloseable {
+
+    static final String ALL_SQL =
+        "SELECT " + RowMapper.MARKS_SCAN.selectList() + " FROM marks ORDER BY stu_id";
+    static final String TAIL_SQL =
+        "SELECT " + RowMapper.MARKS_SCAN.selectList() + " FROM marks WHERE stu_id > ? ORDER BY stu_id";
+
+    private static final int CHUNK = 1 << 16;
+    private static final int A_SUM = GradeReport.GRADE_A_MIN * 3;
+    private static final int B_SUM = GradeReport.GRADE_B_MIN * 3;
+    private static final int C_SUM = GradeReport.GRADE_C_MIN * 3;
+
+    /**
+     * Immutable column set; replaced as a whole on refresh
+     */
+    static final class Columns {
+        final int[] ids;
+        final int[] subject1;
+        final int[] subject2;
+        final int[] subject3;
+        final int size;
+
+        Columns(int[] ids, int[] subject1, int[] subject2, int[] subject3, int size) {
+            this.ids = ids;
+            this.subject1 = subject1;
+            this.subject2 = subject2;
+            this.subject3 = subject3;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Growable column arrays used while reading rows
+     */
+    private static final class Builder {
+        int[] ids;
+        int[] s1;
+        int[] s2;
+        int[] s3;
+        int size;
+
+        Builder(int capacity) {
+            ids = new int[Math.max(16, capacity)];
+            s1 = new int[ids.length];
+            s2 = new int[ids.length];
+            s3 = new int[ids.length];
+        }
+
+        void add(int id, int a, int b, int c) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                s1 = Arrays.copyOf(s1, capacity);
+                s2 = Arrays.copyOf(s2, capacity);
+                s3 = Arrays.copyOf(s3, capacity);
+            }
+            ids[size] = id;
+            s1[size] = a;
+            s2[size] = b;
+            s3[size] = c;
+            size++;
+        }
+
+        /**
+         * Copy rows [from, to) of a column set
+         */
+        void addRange(Columns c, int from, int to) {
+            int n = to - from;
+            if (n <= 0) {
+                return;
+            }
+            while (size + n > ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                s1 = Arrays.copyOf(s1, capacity);
+                s2 = Arrays.copyOf(s2, capacity);
+                s3 = Arrays.copyOf(s3, capacity);
+            }
+            System.arraycopy(c.ids, from, ids, size, n);
+            System.arraycopy(c.subject1, from, s1, size, n);
+            System.arraycopy(c.subject2, from, s2, size, n);
+            System.arraycopy(c.subject3, from, s3, size, n);
+            size += n;
+        }
+
+        Columns build() {
+            return new Columns(ids, s1, s2, s3, size);
+        }
+    }
+
+    private volatile Columns columns = new Columns(new int[0], new int[0], new int[0], new int[0], 0);
+    private final ChangeFeed.Log dirty = ChangeFeed.MARKS.track();
+
+    private MarksSnapshot() {
+    }
+
+    /**
+     * Read the whole marks table and start tracking changes
+     */
+    static MarksSnapshot load() throws SQLException {
+        MarksSnapshot snapshot = new MarksSnapshot();
+        try {
+            snapshot.refreshFull();
+            return snapshot;
+        } catch (SQLException | RuntimeException e) {
+            snapshot.close();
+            throw e;
+        }
+    }
+
+    Columns columns() {
+        return columns;
+    }
+
+    int size() {
+        return columns.size;
+    }
+
+    /**
+     * Re-read everything (after bulk loads or changes made by other programs)
+     */
+    synchronized void refreshFull() throws SQLException {
+        dirty.takeReset();
+        dirty.drain();
+        Builder builder = new Builder(columns.size);
+        // Primary, like forEachById: a replica may not have the changes just drained yet
+        try (Connection conn = JDBCStudentDemo.DbConnector.getPrimaryReadConnection();
+             Statement stmt = StreamingExporter.streamingStatement(conn);
+             ResultSet rs = stmt.executeQuery(ALL_SQL)) {
+            RowMapper.MARKS_SCAN.forEach(rs, m -> builder.add(m.id, m.subject1, m.subject2, m.subject3));
+        }
+        columns = builder.build();
+    }
+
+    /**
+     * Apply the changes since the last refresh
+     * @return number of changed or appended rows applied
+     */
+    synchronized int refresh() throws SQLException {
+        if (dirty.takeReset()) {
+            refreshFull();
+            return columns.size;
+        }
+        Columns current = columns;
+        int[] ids = dirty.drain();
+        int unique = ids.length;
+
+        // Changes sorted by stu_id; missing = deleted
+        Builder changes = new Builder(unique + 16);
+        boolean[] present;
+        try {
+            present = fetchChanged(ids, unique, changes);
+            int maxId = current.size == 0 ? Integer.MIN_VALUE : current.ids[current.size - 1];
+            fetchTail(maxId, ids, unique, changes);
+        } catch (SQLException | RuntimeException e) {
+            dirty.requeue(ids); // keep them for the next attempt
+            throw e;
+        }
+        if (unique == 0 && changes.size == 0) {
+            return 0;
+        }
+        columns = merge(current, ids, unique, present, changes);
+        return unique + changes.size;
+    }
+
+    /**
+     * Re-read the dirty IDs (sorted) into changes
+     * @return for each dirty ID whether it still has a marks row
+     */
+    private static boolean[] fetchChanged(int[] ids, int count, Builder changes) throws SQLException {
+        boolean[] present = new boolean[count];
+        StudentDao.forEachById(RowMapper.MARKS_SCAN, "marks", ids, count, m -> {
+            present[Arrays.binarySearch(ids, 0, count, m.id)] = true;
+            changes.add(m.id, m.subject1, m.subject2, m.subject3);
+        });
+        return present;
+    }
+
+    /**
+     * Rows appended above the current maximum stu_id (skipping dirty IDs,
+     * which were just read)
+     */
+    private static void fetchTail(int maxId, int[] dirtyIds, int dirtyCount, Builder changes)
+            throws SQLException {
+        Builder tail = new Builder(16);
+        try (Connection conn = JDBCStudentDemo.DbConnector.getPrimaryReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(TAIL_SQL)) {
+            pstmt.setInt(1, maxId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper.MARKS_SCAN.forEach(rs, m -> {
+                    if (Arrays.binarySearch(dirtyIds, 0, dirtyCount, m.id) < 0) {
+                        tail.add(m.id, m.subject1, m.subject2, m.subject3);
+                    }
+                });
+            }
+        }
+        if (tail.size == 0) {
+            return;
+        }
+        // Both lists are sorted; merge tail into changes
+        Columns a = changes.build();
+        Columns b = tail.build();
+        Builder merged = new Builder(a.size + b.size);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.ids[i] < b.ids[j])) {
+                merged.addRange(a, i, ++i);
+            } else {
+                merged.addRange(b, j, ++j);
+            }
+        }
+        changes.ids = merged.ids;
+        changes.s1 = merged.s1;
+        changes.s2 = merged.s2;
+        changes.s3 = merged.s3;
+        changes.size = merged.size;
+    }
+
+    /**
+     * New columns = old rows minus dirty IDs, plus the fetched rows; the
+     * untouched runs between changes are block-copied
+     */
+    private static Columns merge(Columns old, int[] dirtyIds, int dirtyCount, boolean[] present,
+                                 Builder changes) {
+        Columns add = changes.build();
+        Builder out = new Builder(old.size + add.size);
+        int pos = 0;
+        int d = 0;
+        int c = 0;
+        while (d < dirtyCount || c < add.size) {
+            int id;
+            boolean fromDirty = c == add.size || (d < dirtyCount && dirtyIds[d] <= add.ids[c]);
+            id = fromDirty ? dirtyIds[d] : add.ids[c];
+            int k = Arrays.binarySearch(old.ids, pos, old.size, id);
+            int insertAt = k >= 0 ? k : -k - 1;
+            out.addRange(old, pos, insertAt);
+            pos = k >= 0 ? k + 1 : insertAt;
+            if (fromDirty) {
+                if (present[d] && c < add.size && add.ids[c] == id) {
+                    out.addRange(add, c, c + 1);
+                    c++;
+                }
+                d++;
+            } else {
+                out.addRange(add, c, c + 1);
+                c++;
+            }
+        }
+        out.addRange(old, pos, old.size);
+        return out.build();
+    }
+
+    // Analytics
+
+    /**
+     * Number of students per grade, A, B, C, F in order
+     */
+    Map<Character, Integer> gradeHistogram() {
+        Columns c = columns;
+        long[] cumulative = chunks(c.size)
+            .mapToObj(k -> countGrades(c, k * CHUNK, Math.min(c.size, (k + 1) * CHUNK)))
+            .reduce(new long[3], (x, y) -> new long[] { x[0] + y[0], x[1] + y[1], x[2] + y[2] });
+        Map<Character, Integer> counts = new TreeMap<>();
+        counts.put('A', (int) cumulative[0]);
+        counts.put('B', (int) (cumulative[1] - cumulative[0]));
+        counts.put('C', (int) (cumulative[2] - cumulative[1]));
+        counts.put('F', (int) (c.size - cumulative[2]));
+        return counts;
+    }
+
+    /**
+     * Branch-free counting: each comparison adds 0 or 1, so the loop has
+     * no data-dependent jumps and vectorizes
+     * @return { #A, #A + #B, #A + #B + #C }
+     */
+    private static long[] countGrades(Columns c, int from, int to) {
+        int[] s1 = c.subject1;
+        int[] s2 = c.subject2;
+        int[] s3 = c.subject3;
+        int atLeastA = 0;
+        int atLeastB = 0;
+        int atLeastC = 0;
+        for (int i = from; i < to; i++) {
+            int sum = s1[i] + s2[i] + s3[i];
+            atLeastA += sum >= A_SUM ? 1 : 0;
+            atLeastB += sum >= B_SUM ? 1 : 0;
+            atLeastC += sum >= C_SUM ? 1 : 0;
+        }
+        return new long[] { atLeastA, atLeastB, atLeastC };
+    }
+
+    /**
+     * Integer average of every student, in stu_id order
+     */
+    int[] averages() {
+        Columns c = columns;
+        int[] out = new int[c.size];
+        chunks(c.size).forEach(k -> {
+            int to = Math.min(c.size, (k + 1) * CHUNK);
+            for (int i = k * CHUNK; i < to; i++) {
+                out[i] = (c.subject1[i] + c.subject2[i] + c.subject3[i]) / 3;
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Mean mark of each subject over all students
+     */
+    double[] subjectAverages() {
+        Columns c = columns;
+        if (c.size == 0) {
+            return new double[3];
+        }
+        long[] sums = chunks(c.size)
+            .mapToObj(k -> {
+                int to = Math.min(c.size, (k + 1) * CHUNK);
+                long a = 0;
+                long b = 0;
+                long d = 0;
+                for (int i = k * CHUNK; i < to; i++) {
+                    a += c.subject1[i];
+                    b += c.subject2[i];
+                    d += c.subject3[i];
+                }
+                return new long[] { a, b, d };
+            })
+            .reduce(new long[3], (x, y) -> new long[] { x[0] + y[0], x[1] + y[1], x[2] + y[2] });
+        return new double[] {
+            (double) sums[0] / c.size, (double) sums[1] / c.size, (double) sums[2] / c.size
+        };
+    }
+
+    /**
+     * IDs of the students with the given grade, in stu_id order
+     */
+    int[] idsWithGrade(char grade) {
+        int[] range = GradeReport.sumRange(grade);
+        int min = range[0];
+        int max = range[1];
+        Columns c = columns;
+        return chunks(c.size)
+            .mapToObj(k -> {
+                int to = Math.min(c.size, (k + 1) * CHUNK);
+                int[] found = new int[to - k * CHUNK];
+                int n = 0;
+                for (int i = k * CHUNK; i < to; i++) {
+                    int sum = c.subject1[i] + c.subject2[i] + c.subject3[i];
+                    found[n] = c.ids[i];
+                    n += sum >= min && sum < max ? 1 : 0;
+                }
+                return Arrays.copyOf(found, n);
+            })
+            .reduce(new int[0], (x, y) -> {
+                int[] joined = Arrays.copyOf(x, x.length + y.length);
+                System.arraycopy(y, 0, joined, x.length, y.length);
+                return joined;
+            });
+    }
+
+    /**
+     * Chunk numbers, in parallel when there is more than one chunk
+     */
+    private static IntStream chunks(int size) {
+        int count = (size + CHUNK - 1) / CHUNK;
+        IntStream stream = IntStream.range(0, count);
+        return count > 1 ? stream.parallel() : stream;
+    }
+
+    /**
+     * Stop tracking changes
+     */
+    @Override
+    public void close() {
+        dirty.close();
+    }
+}
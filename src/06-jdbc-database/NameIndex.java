@@ -0,0 +1,394 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * NameIndex - In-memory prefix and substring search over stu_name
+ *
+ * This class demonstrates:
+ * - A trigram inverted index: every 3-character piece of a name maps to a
+ *   sorted int[] posting list of the stu_ids containing it
+ * - Substring search by intersecting the posting lists of the query's
+ *   trigrams (smallest first), then checking the few candidates left
+ * - Prefix (type-ahead) search over a sorted map of names
+ * - Staying in sync with writes by re-reading only changed students
+ *   (ChangeFeed.STUDENTS), instead of running LIKE '%x%' table scans
+ *
+ * Matching ignores case. Names are indexed without surrounding spaces, but
+ * a query is only lower-cased, so containing(" smith") still needs the
+ * space. Queries shorter than 3 characters have no trigram, so
+ * containing() checks each distinct indexed name for them instead.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class NameIndex implements AutoCloseable {
+
+    /**
+     * Sorted, growable list of stu_ids
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == 0 || id > ids[size - 1]) {
+                // A reload indexes in stu_id order: append, no search or shift
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                }
+                ids[size++] = id;
+                return;
+            }
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, at, ids, at + 1, size - at);
+            ids[at] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ChangeFeed.Log changes = ChangeFeed.STUDENTS.track();
+
+    // Guarded by lock
+    private final IntIndexMap slotById = new IntIndexMap(1024);
+    private String[] names = new String[1024];  // as read, by slot
+    private String[] keys = new String[1024];   // normalized, by slot
+    private int used;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private final Map<Long, Postings> trigrams = new HashMap<>();
+    private final TreeMap<String, Postings> byName = new TreeMap<>();
+
+    private NameIndex() {
+    }
+
+    /**
+     * Read every student's name and start following changes
+     */
+    static NameIndex load() throws SQLException {
+        NameIndex index = new NameIndex();
+        try {
+            index.reload();
+        } catch (SQLException | RuntimeException e) {
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Apply the student inserts, renames and deletes made since the last
+     * refresh (after a CSV load, re-read everything)
+     * @return number of students re-read
+     */
+    synchronized int refresh() throws SQLException {
+        if (changes.takeReset()) {
+            return reload();
+        }
+        int[] changed = changes.drain();
+        if (changed.length == 0) {
+            return 0;
+        }
+        IntIndexMap rowById = new IntIndexMap(changed.length);
+        String[] current = new String[changed.length];
+        try {
+            StudentDao.forEachById(RowMapper.STUDENT_SCAN, "basicdata", changed, changed.length, s -> {
+                int row = rowById.get(s.id);
+                if (row == IntIndexMap.MISSING) {
+                    row = rowById.size();
+                    rowById.put(s.id, row);
+                }
+                current[row] = s.name;
+            });
+        } catch (SQLException | RuntimeException e) {
+            changes.requeue(changed);
+            throw e;
+        }
+        lock.writeLock().lock();
+        try {
+            for (int id : changed) {
+                int row = rowById.get(id);
+                put(id, row == IntIndexMap.MISSING ? null : current[row]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return changed.length;
+    }
+
+    private synchronized int reload() throws SQLException {
+        changes.takeReset();
+        changes.drain();
+        // Kept in cursor (stu_id) order, so every posting list is appended to
+        int[][] ids = { new int[1024] };
+        List<String> read = new ArrayList<>(1024);
+        // From the primary, so no rename reported before the drain is missed
+        try (Connection conn = JDBCStudentDemo.DbConnector.getPrimaryReadConnection();
+             Statement stmt = StreamingExporter.streamingStatement(conn);
+             ResultSet rs = stmt.executeQuery(StreamingExporter.STUDENTS_SQL)) {
+            RowMapper.STUDENT_SCAN.forEach(rs, s -> {
+                int n = read.size();
+                if (n == ids[0].length) {
+                    ids[0] = Arrays.copyOf(ids[0], n * 2);
+                }
+                ids[0][n] = s.id;
+                read.add(s.name);
+            });
+        }
+        lock.writeLock().lock();
+        try {
+            slotById.clear();
+            names = new String[Math.max(read.size(), 16)];
+            keys = new String[names.length];
+            used = 0;
+            freeCount = 0;
+            trigrams.clear();
+            byName.clear();
+            for (int i = 0; i < read.size(); i++) {
+                put(ids[0][i], read.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return read.size();
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the indexed name, or null if the ID is not indexed
+     */
+    String nameOf(int id) {
+        lock.readLock().lock();
+        try {
+            int slot = slotById.get(id);
+            return slot == IntIndexMap.MISSING ? null : names[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Students whose name starts with the prefix, in name order
+     */
+    int[] startingWith(String prefix, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        if (limit <= 0) {
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            int[] found = new int[Math.min(limit, slotById.size())];
+            int n = 0;
+            NavigableMap<String, Postings> tail = byName.tailMap(key, true);
+            for (Map.Entry<String, Postings> entry : tail.entrySet()) {
+                if (n == found.length || !entry.getKey().startsWith(key)) {
+                    break;
+                }
+                Postings ids = entry.getValue();
+                for (int i = 0; i < ids.size && n < found.length; i++) {
+                    found[n++] = ids.ids[i];
+                }
+            }
+            return Arrays.copyOf(found, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Students whose name contains the text anywhere, in stu_id order
+     */
+    int[] containing(String text, int limit) {
+        String key = text.toLowerCase(Locale.ROOT);
+        if (key.isEmpty() || limit <= 0) {
+            return new int[0];
+        }
+        lock.readLock().lock();
+        try {
+            if (key.length() < 3) {
+                return scan(key, limit);
+            }
+            // Posting lists of the query's trigrams, shortest first
+            List<Postings> lists = new ArrayList<>(key.length() - 2);
+            for (int i = 0; i + 3 <= key.length(); i++) {
+                Postings ids = trigrams.get(trigram(key, i));
+                if (ids == null) {
+                    return new int[0];
+                }
+                if (!lists.contains(ids)) {
+                    lists.add(ids);
+                }
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size));
+
+            Postings smallest = lists.get(0);
+            int[] found = new int[Math.min(limit, smallest.size)];
+            int n = 0;
+            for (int i = 0; i < smallest.size && n < found.length; i++) {
+                int id = smallest.ids[i];
+                if (inAll(lists, id) && nameKey(id).contains(key)) {
+                    found[n++] = id;
+                }
+            }
+            return Arrays.copyOf(found, n);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean inAll(List<Postings> lists, int id) {
+        for (int j = 1; j < lists.size(); j++) {
+            Postings other = lists.get(j);
+            if (Arrays.binarySearch(other.ids, 0, other.size, id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check each distinct normalized name once; shared names cost nothing extra
+     */
+    private int[] scan(String key, int limit) {
+        int[] found = new int[16];
+        int n = 0;
+        for (Map.Entry<String, Postings> entry : byName.entrySet()) {
+            if (entry.getKey().contains(key)) {
+                Postings ids = entry.getValue();
+                if (n + ids.size > found.length) {
+                    found = Arrays.copyOf(found, Math.max(found.length * 2, n + ids.size));
+                }
+                System.arraycopy(ids.ids, 0, found, n, ids.size);
+                n += ids.size;
+            }
+        }
+        Arrays.sort(found, 0, n);
+        return Arrays.copyOf(found, Math.min(n, limit));
+    }
+
+    // Index maintenance; callers hold the write lock
+
+    /**
+     * Index a student's current name (null = student deleted)
+     */
+    private void put(int id, String name) {
+        int slot = slotById.get(id);
+        if (slot != IntIndexMap.MISSING) {
+            if (names[slot].equals(name)) {
+                return;
+            }
+            unindex(id, keys[slot]);
+            if (name == null) {
+                slotById.remove(id);
+                names[slot] = null;
+                keys[slot] = null;
+                if (freeCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+                }
+                freeSlots[freeCount++] = slot;
+                return;
+            }
+        } else if (name == null) {
+            return;
+        } else {
+            slot = newSlot();
+            slotById.put(id, slot);
+        }
+        String key = normalize(name);
+        names[slot] = name;
+        keys[slot] = key;
+        index(id, key);
+    }
+
+    private int newSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (used == names.length) {
+            names = Arrays.copyOf(names, used * 2);
+            keys = Arrays.copyOf(keys, used * 2);
+        }
+        return used++;
+    }
+
+    private void index(int id, String key) {
+        byName.computeIfAbsent(key, k -> new Postings()).add(id);
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            trigrams.computeIfAbsent(trigram(key, i), k -> new Postings()).add(id);
+        }
+    }
+
+    private void unindex(int id, String key) {
+        remove(byName, key, id);
+        for (int i = 0; i + 3 <= key.length(); i++) {
+            remove(trigrams, trigram(key, i), id);
+        }
+    }
+
+    private static <K> void remove(Map<K, Postings> map, K key, int id) {
+        Postings ids = map.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.size == 0) {
+                map.remove(key);
+            }
+        }
+    }
+
+    private String nameKey(int id) {
+        return keys[slotById.get(id)];
+    }
+
+    /**
+     * Form in which names are indexed (queries are only lower-cased)
+     */
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Three UTF-16 chars packed into one long
+     */
+    private static long trigram(String key, int at) {
+        return ((long) key.charAt(at) << 32) | ((long) key.charAt(at + 1) << 16) | key.charAt(at + 2);
+    }
+
+    /**
+     * Stop following student changes
+     */
+    @Override
+    public void close() {
+        changes.close();
+    }
+}
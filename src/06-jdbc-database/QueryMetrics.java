@@ -0,0 +1,327 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * QueryMetrics - Per-operation latency histograms and a slow-query log
+ *
+ * This class demonstrates:
+ * - Splitting each database call into connect / execute / fetch phases
+ * - Lock-free log-linear histograms (about 3% precision, fixed memory)
+ * - p50 / p99 / p99.9 per operation and phase
+ * - A configurable slow-query threshold with a bounded log of recent entries
+ * - Exporting a snapshot as text or JSON
+ *
+ * Usage, wrapped around the JDBC resources so the phases line up:
+ * <pre>
+ * try (QueryMetrics.Timer timer = QueryMetrics.start("findById");
+ *      Connection conn = timer.connected(DbConnector.getConnection());
+ *      PreparedStatement pstmt = conn.prepareStatement(sql)) {
+ *     ResultSet rs = timer.executed(pstmt.executeQuery());
+ *     ...                                    // fetch time runs until close
+ * }
+ * </pre>
+ * A timer that never reaches executed() is counted as an error.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class QueryMetrics {
+
+    /**
+     * Log-linear latency histogram in nanoseconds: 32 linear sub-buckets per
+     * power of two, so every bucket is at most ~3% wide
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_COUNT = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40; // ~18 minutes
+        private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_COUNT;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder total = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        void record(long nanos) {
+            counts.incrementAndGet(indexOf(Math.max(0, nanos)));
+            total.increment();
+            sum.add(nanos);
+        }
+
+        static int indexOf(long value) {
+            if (value < SUB_COUNT) {
+                return (int) value;
+            }
+            int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+            long mantissa = Math.min(value >>> (exponent - SUB_BITS), 2 * SUB_COUNT - 1);
+            return (exponent - SUB_BITS + 1) * SUB_COUNT + (int) (mantissa - SUB_COUNT);
+        }
+
+        /**
+         * Upper edge of a bucket (values are reported as this bound)
+         */
+        static long upperBound(int index) {
+            if (index < SUB_COUNT) {
+                return index;
+            }
+            int exponent = index / SUB_COUNT + SUB_BITS - 1;
+            long mantissa = index % SUB_COUNT + SUB_COUNT;
+            return ((mantissa + 1) << (exponent - SUB_BITS)) - 1;
+        }
+
+        long count() {
+            return total.sum();
+        }
+
+        double meanNanos() {
+            long n = total.sum();
+            return n == 0 ? 0.0 : (double) sum.sum() / n;
+        }
+
+        /**
+         * @param quantile e.g. 0.99 for p99
+         */
+        long percentile(double quantile) {
+            long n = total.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return upperBound(BUCKETS - 1);
+        }
+    }
+
+    /**
+     * Histograms for one named operation
+     */
+    static final class OperationMetrics {
+        final String name;
+        final LatencyHistogram connect = new LatencyHistogram();
+        final LatencyHistogram execute = new LatencyHistogram();
+        final LatencyHistogram fetch = new LatencyHistogram();
+        final LatencyHistogram total = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder slow = new LongAdder();
+
+        OperationMetrics(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * Measures one call; see the class comment for usage
+     */
+    static final class Timer implements AutoCloseable {
+        private final OperationMetrics op;
+        private final long start;
+        private long connectedAt;
+        private long executedAt;
+
+        private Timer(OperationMetrics op) {
+            this.op = op;
+            this.start = System.nanoTime();
+        }
+
+        <T> T connected(T connection) {
+            connectedAt = System.nanoTime();
+            return connection;
+        }
+
+        <T> T executed(T result) {
+            executedAt = System.nanoTime();
+            return result;
+        }
+
+        int executed(int result) {
+            executedAt = System.nanoTime();
+            return result;
+        }
+
+        @Override
+        public void close() {
+            long end = System.nanoTime();
+            long connectEnd = connectedAt == 0 ? end : connectedAt;
+            op.connect.record(connectEnd - start);
+            if (executedAt == 0) {
+                op.errors.increment();
+                return;
+            }
+            long executeNanos = executedAt - connectEnd;
+            long fetchNanos = end - executedAt;
+            long totalNanos = end - start;
+            op.execute.record(executeNanos);
+            op.fetch.record(fetchNanos);
+            op.total.record(totalNanos);
+            if (totalNanos >= slowThresholdNanos) {
+                op.slow.increment();
+                logSlow(new SlowQuery(op.name, System.currentTimeMillis(),
+                                      connectEnd - start, executeNanos, fetchNanos));
+            }
+        }
+    }
+
+    /**
+     * One slow-query log entry
+     */
+    static final class SlowQuery {
+        final String operation;
+        final long timestampMillis;
+        final long connectNanos;
+        final long executeNanos;
+        final long fetchNanos;
+
+        SlowQuery(String operation, long timestampMillis, long connectNanos,
+                  long executeNanos, long fetchNanos) {
+            this.operation = operation;
+            this.timestampMillis = timestampMillis;
+            this.connectNanos = connectNanos;
+            this.executeNanos = executeNanos;
+            this.fetchNanos = fetchNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Slow query: %s took %.2fms (connect %.2fms, execute %.2fms, fetch %.2fms)",
+                                 operation, (connectNanos + executeNanos + fetchNanos) / 1e6,
+                                 connectNanos / 1e6, executeNanos / 1e6, fetchNanos / 1e6);
+        }
+    }
+
+    private static final int SLOW_LOG_CAPACITY = 100;
+    private static final ConcurrentHashMap<String, OperationMetrics> OPERATIONS = new ConcurrentHashMap<>();
+    private static final ArrayDeque<SlowQuery> SLOW_LOG = new ArrayDeque<>();
+
+    private static volatile long slowThresholdNanos = 500_000_000L;
+    private static volatile Consumer<SlowQuery> slowQueryListener =
+        q -> System.err.println("⚠️  " + q);
+
+    private QueryMetrics() {
+    }
+
+    static Timer start(String operation) {
+        return new Timer(OPERATIONS.computeIfAbsent(operation, OperationMetrics::new));
+    }
+
+    /**
+     * Calls at or above this total duration go to the slow-query log
+     */
+    static void setSlowQueryThresholdMillis(long millis) {
+        slowThresholdNanos = millis * 1_000_000L;
+    }
+
+    /**
+     * Where slow queries are reported besides the in-memory log (default System.err)
+     */
+    static void setSlowQueryListener(Consumer<SlowQuery> listener) {
+        slowQueryListener = listener;
+    }
+
+    private static void logSlow(SlowQuery query) {
+        synchronized (SLOW_LOG) {
+            if (SLOW_LOG.size() == SLOW_LOG_CAPACITY) {
+                SLOW_LOG.removeFirst();
+            }
+            SLOW_LOG.addLast(query);
+        }
+        Consumer<SlowQuery> listener = slowQueryListener;
+        if (listener != null) {
+            listener.accept(query);
+        }
+    }
+
+    /**
+     * The most recent slow queries, oldest first
+     */
+    static List<SlowQuery> recentSlowQueries() {
+        synchronized (SLOW_LOG) {
+            return new ArrayList<>(SLOW_LOG);
+        }
+    }
+
+    static OperationMetrics get(String operation) {
+        return OPERATIONS.get(operation);
+    }
+
+    static void reset() {
+        OPERATIONS.clear();
+        synchronized (SLOW_LOG) {
+            SLOW_LOG.clear();
+        }
+    }
+
+    /**
+     * Human-readable table: one line per operation and phase, times in ms
+     */
+    static String snapshotText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-28s %-8s %10s %10s %10s %10s %10s%n",
+                                "Operation", "Phase", "Count", "Mean", "p50", "p99", "p99.9"));
+        for (OperationMetrics op : sorted().values()) {
+            appendText(sb, op.name, "connect", op.connect);
+            appendText(sb, op.name, "execute", op.execute);
+            appendText(sb, op.name, "fetch", op.fetch);
+            appendText(sb, op.name, "total", op.total);
+            if (op.errors.sum() > 0 || op.slow.sum() > 0) {
+                sb.append(String.format("%-28s errors=%d slow=%d%n", op.name, op.errors.sum(), op.slow.sum()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void appendText(StringBuilder sb, String name, String phase, LatencyHistogram h) {
+        sb.append(String.format("%-28s %-8s %10d %10.3f %10.3f %10.3f %10.3f%n",
+                                name, phase, h.count(), h.meanNanos() / 1e6,
+                                h.percentile(0.50) / 1e6, h.percentile(0.99) / 1e6,
+                                h.percentile(0.999) / 1e6));
+    }
+
+    /**
+     * Machine-readable snapshot (times in microseconds)
+     */
+    static String snapshotJson() {
+        StringBuilder sb = new StringBuilder("{\"operations\":[");
+        boolean first = true;
+        for (OperationMetrics op : sorted().values()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append("{\"name\":\"").append(op.name).append('"')
+              .append(",\"errors\":").append(op.errors.sum())
+              .append(",\"slow\":").append(op.slow.sum());
+            appendJson(sb, "connect", op.connect);
+            appendJson(sb, "execute", op.execute);
+            appendJson(sb, "fetch", op.fetch);
+            appendJson(sb, "total", op.total);
+            sb.append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private static void appendJson(StringBuilder sb, String phase, LatencyHistogram h) {
+        sb.append(",\"").append(phase).append("\":{")
+          .append("\"count\":").append(h.count())
+          .append(",\"meanUs\":").append(Math.round(h.meanNanos() / 1e3))
+          .append(",\"p50Us\":").append(h.percentile(0.50) / 1000)
+          .append(",\"p99Us\":").append(h.percentile(0.99) / 1000)
+          .append(",\"p999Us\":").append(h.percentile(0.999) / 1000)
+          .append('}');
+    }
+
+    private static Map<String, OperationMetrics> sorted() {
+        return new TreeMap<>(OPERATIONS);
+    }
+}
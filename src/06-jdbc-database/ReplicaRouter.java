@@ -0,0 +1,281 @@
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * ReplicaRouter - Sends read-only work to replica databases
+ *
+ * This class demonstrates:
+ * - Least-outstanding-requests balancing across replica connection pools
+ * - Read-your-writes: for a short window after a write to basicdata or
+ *   marks, reads stay on the primary, so no caller sees a change missing
+ * - Ejecting a replica whose connections fail, with exponential back-off,
+ *   and readmitting it on the first successful checkout afterwards
+ *
+ * acquire() never throws: it returns null when the caller should use the
+ * primary instead (write window, or no replica available). A replica
+ * that is merely busy (checkout timeout) is skipped but not ejected.
+ * Replica pools are created on first use, so a replica that is down at
+ * startup is simply ejected until it comes back.
+ *
+ * The window is opened by the writes themselves, as reported to
+ * {@link ChangeFeed} after each statement, not by the thread that made
+ * them: a read on an AsyncStudentService task, an HTTP request thread or
+ * a StudentDao multi-get worker sees the write as well, and merely taking
+ * a primary connection to read starts nothing. Writes made by other
+ * programs are not reported and can still be missing on a replica.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class ReplicaRouter implements AutoCloseable {
+
+    /**
+     * Routing settings (all times in milliseconds)
+     */
+    static class Config {
+        long stickyAfterWriteMillis = 2_000;
+        long ejectMillis = 5_000;
+        long maxEjectMillis = 60_000;
+
+        Config stickyAfterWriteMillis(long value) { this.stickyAfterWriteMillis = value; return this; }
+        Config ejectMillis(long value) { this.ejectMillis = value; return this; }
+        Config maxEjectMillis(long value) { this.maxEjectMillis = value; return this; }
+    }
+
+    /**
+     * Point-in-time view of one replica
+     */
+    static class ReplicaStats {
+        final String url;
+        final int outstanding;
+        final long served;
+        final long ejections;
+        final boolean ejected;
+
+        ReplicaStats(String url, int outstanding, long served, long ejections, boolean ejected) {
+            this.url = url;
+            this.outstanding = outstanding;
+            this.served = served;
+            this.ejections = ejections;
+            this.ejected = ejected;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %s, outstanding=%d, served=%d, ejections=%d",
+                                 url, ejected ? "EJECTED" : "healthy", outstanding, served, ejections);
+        }
+    }
+
+    private static final class Replica {
+        final String url;
+        final ConnectionPool.ConnectionFactory factory;
+        final AtomicInteger outstanding = new AtomicInteger();
+        final LongAdder served = new LongAdder();
+        final LongAdder ejections = new LongAdder();
+        volatile long ejectedUntil;       // System.nanoTime(); 0 = healthy
+        private int consecutiveFailures;  // guarded by this
+        private ConnectionPool pool;      // guarded by this
+
+        Replica(String url, ConnectionPool.ConnectionFactory factory) {
+            this.url = url;
+            this.factory = factory;
+        }
+
+        boolean available(long now) {
+            long until = ejectedUntil;
+            return until == 0 || now - until >= 0;
+        }
+
+        synchronized ConnectionPool pool(ConnectionPool.Config poolConfig) throws SQLException {
+            if (pool == null) {
+                pool = new ConnectionPool(poolConfig, factory);
+            }
+            return pool;
+        }
+
+        synchronized void succeeded() {
+            consecutiveFailures = 0;
+            ejectedUntil = 0;
+        }
+
+        /**
+         * @return how long the replica is now ejected for
+         */
+        synchronized long failed(Config config) {
+            consecutiveFailures++;
+            long millis = config.ejectMillis << Math.min(consecutiveFailures - 1, 20);
+            millis = Math.min(millis, config.maxEjectMillis);
+            ejectedUntil = System.nanoTime() + millis * 1_000_000L;
+            ejections.increment();
+            // Connections opened before the failure are probably dead too
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+            return millis;
+        }
+
+        synchronized void close() {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+            }
+        }
+    }
+
+    private final Config config;
+    private final ConnectionPool.Config poolConfig;
+    private final Replica[] replicas;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final LongAdder stickyReads = new LongAdder();
+    private final LongAdder fallbackReads = new LongAdder();
+
+    /**
+     * @param factories opens a physical connection to the given replica URL
+     */
+    ReplicaRouter(Config config, ConnectionPool.Config poolConfig, List<String> urls,
+                  Function<String, ConnectionPool.ConnectionFactory> factories) {
+        this.config = config;
+        this.poolConfig = poolConfig;
+        this.replicas = new Replica[urls.size()];
+        for (int i = 0; i < replicas.length; i++) {
+            replicas[i] = new Replica(urls.get(i), factories.apply(urls.get(i)));
+        }
+    }
+
+    /**
+     * True while a write to basicdata or marks is recent enough that a
+     * replica may not have applied it yet
+     */
+    boolean stickToPrimary() {
+        long window = config.stickyAfterWriteMillis * 1_000_000L;
+        return ChangeFeed.STUDENTS.changedWithin(window) || ChangeFeed.MARKS.changedWithin(window);
+    }
+
+    /**
+     * A connection to the least busy healthy replica, or null if the caller
+     * should read from the primary
+     */
+    Connection acquire() {
+        if (stickToPrimary()) {
+            stickyReads.increment();
+            return null;
+        }
+        boolean[] tried = new boolean[replicas.length];
+        for (int attempt = 0; attempt < replicas.length; attempt++) {
+            Replica replica = leastOutstanding(tried);
+            if (replica == null) {
+                break;
+            }
+            replica.outstanding.incrementAndGet();
+            try {
+                Connection conn = replica.pool(poolConfig).getConnection();
+                replica.succeeded();
+                replica.served.increment();
+                return track(replica, conn);
+            } catch (SQLTimeoutException e) {
+                replica.outstanding.decrementAndGet();  // busy, not broken
+            } catch (SQLException e) {
+                replica.outstanding.decrementAndGet();
+                long millis = replica.failed(config);
+                System.err.println("⚠️  Replica " + replica.url + " ejected for " + millis
+                                   + "ms: " + e.getMessage());
+            }
+        }
+        fallbackReads.increment();
+        return null;
+    }
+
+    /**
+     * Healthy, untried replica with the fewest checked-out connections;
+     * the scan starts at a rotating offset so ties are spread evenly
+     */
+    private Replica leastOutstanding(boolean[] tried) {
+        long now = System.nanoTime();
+        int start = Math.floorMod(rotation.getAndIncrement(), replicas.length);
+        int bestIndex = -1;
+        int bestLoad = Integer.MAX_VALUE;
+        for (int k = 0; k < replicas.length; k++) {
+            int i = (start + k) % replicas.length;
+            if (tried[i] || !replicas[i].available(now)) {
+                continue;
+            }
+            int load = replicas[i].outstanding.get();
+            if (load < bestLoad) {
+                bestLoad = load;
+                bestIndex = i;
+            }
+        }
+        if (bestIndex < 0) {
+            return null;
+        }
+        tried[bestIndex] = true;
+        return replicas[bestIndex];
+    }
+
+    /**
+     * Wrap the pooled connection so close() also ends the outstanding request
+     */
+    private static Connection track(Replica replica, Connection conn) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean closed;
+
+            @Override
+            public Object invoke(Object proxy, java.lang.reflect.Method method, Object[] args)
+                    throws Throwable {
+                if ("close".equals(method.getName()) && method.getParameterCount() == 0 && !closed) {
+                    closed = true;
+                    replica.outstanding.decrementAndGet();
+                }
+                try {
+                    return method.invoke(conn, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    List<ReplicaStats> stats() {
+        long now = System.nanoTime();
+        List<ReplicaStats> result = new ArrayList<>(replicas.length);
+        for (Replica r : replicas) {
+            result.add(new ReplicaStats(r.url, r.outstanding.get(), r.served.sum(),
+                                        r.ejections.sum(), !r.available(now)));
+        }
+        return result;
+    }
+
+    /**
+     * Reads sent to the primary because of a recent write
+     */
+    long stickyReads() {
+        return stickyReads.sum();
+    }
+
+    /**
+     * Reads sent to the primary because no replica was available
+     */
+    long fallbackReads() {
+        return fallbackReads.sum();
+    }
+
+    @Override
+    public void close() {
+        for (Replica r : replicas) {
+            r.close();
+        }
+    }
+}
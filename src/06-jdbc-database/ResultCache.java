@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * ResultCache - Whole query results kept in memory until a table they read changes
+ *
+ * This class demonstrates:
+ * - Entries keyed by query name plus parameters (e.g. "gradeReport:grade F")
+ * - Table-level invalidation: each entry remembers the ChangeFeed version of
+ *   every table it read (basicdata, marks); any write through this program
+ *   bumps the version, and the entry is stale from then on
+ * - A size limit in bytes (estimated), with least-recently-used eviction
+ * - Immutable results (StudentMarksRows, unmodifiable lists) handed to every
+ *   reader as-is, so concurrent readers share one copy
+ *
+ * Versions are taken BEFORE the query runs (see {@link #ticket}); if a write
+ * lands while the query is running, the result is simply not cached. Writes
+ * made by other programs are not seen; maxAgeMillis bounds how long such a
+ * result can be served. Results read from a replica must not be cached at
+ * all: a lagging replica can return rows older than the ticket's versions.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class ResultCache {
+
+    /**
+     * Counter snapshot
+     */
+    static class Stats {
+        final long hits;
+        final long misses;
+        final long invalidations;
+        final long evictions;
+        final long tooLarge;
+        final int entries;
+        final long bytes;
+        final long maxBytes;
+
+        Stats(long hits, long misses, long invalidations, long evictions, long tooLarge,
+              int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.invalidations = invalidations;
+            this.evictions = evictions;
+            this.tooLarge = tooLarge;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ResultCache[entries=%d, bytes=%,d/%,d, hits=%d, misses=%d, " +
+                                 "invalidations=%d, evictions=%d, tooLarge=%d, hitRatio=%.1f%%]",
+                                 entries, bytes, maxBytes, hits, misses, invalidations,
+                                 evictions, tooLarge, hitRatio() * 100);
+        }
+    }
+
+    /**
+     * Table versions seen before a query ran; hand it back to {@link #put}
+     */
+    static final class Ticket {
+        final String key;
+        private final ChangeFeed[] tables;
+        private final long[] versions;
+
+        private Ticket(String key, ChangeFeed[] tables) {
+            this.key = key;
+            this.tables = tables;
+            this.versions = new long[tables.length];
+            for (int i = 0; i < tables.length; i++) {
+                versions[i] = tables[i].version();
+            }
+        }
+
+        boolean current() {
+            for (int i = 0; i < tables.length; i++) {
+                if (tables[i].version() != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Entry {
+        final Ticket ticket;
+        final Object value;
+        final long bytes;
+        final long expiresAt;
+
+        Entry(Ticket ticket, Object value, long bytes, long expiresAt) {
+            this.ticket = ticket;
+            this.value = value;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Rough heap size of a String (header + array + one byte per char for
+     * Latin-1 text); good enough to budget by
+     */
+    static long bytesOf(String s) {
+        return s == null ? 0 : 56 + s.length();
+    }
+
+    private final long maxBytes;
+    private final long maxAgeMillis;
+
+    // Guarded by this; access order, eldest = least recently used
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits, misses, invalidations, evictions, tooLarge;
+
+    /**
+     * @param maxBytes     total estimated size of all cached results
+     * @param maxAgeMillis upper bound on how long a result is served
+     */
+    ResultCache(long maxBytes, long maxAgeMillis) {
+        if (maxBytes < 1 || maxAgeMillis < 1) {
+            throw new IllegalArgumentException("maxBytes and maxAgeMillis must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Largest single result worth caching: a quarter of the budget, so one
+     * huge report cannot flush everything else
+     */
+    long maxEntryBytes() {
+        return maxBytes / 4;
+    }
+
+    /**
+     * @return the cached result, or null if absent, stale or expired
+     */
+    synchronized <T> T get(String key, Class<T> type) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        if (!entry.ticket.current() || System.currentTimeMillis() >= entry.expiresAt) {
+            remove(key, entry);
+            invalidations++;
+            misses++;
+            return null;
+        }
+        hits++;
+        return type.cast(entry.value);
+    }
+
+    /**
+     * Record the versions of the tables a query reads; take it before running the query
+     */
+    Ticket ticket(String key, ChangeFeed... tables) {
+        return new Ticket(key, tables.clone());
+    }
+
+    /**
+     * Cache a complete result unless one of its tables changed since the
+     * ticket was taken, or it is too large (value null = it did not fit)
+     */
+    synchronized void put(Ticket ticket, Object value, long size) {
+        if (value == null || size > maxEntryBytes()) {
+            tooLarge++;
+            return;
+        }
+        if (!ticket.current()) {
+            return;
+        }
+        Entry old = entries.get(ticket.key);
+        if (old != null) {
+            remove(ticket.key, old);
+        }
+        dropStale();
+        for (Iterator<Entry> eldest = entries.values().iterator();
+             bytes + size > maxBytes && eldest.hasNext(); ) {
+            bytes -= eldest.next().bytes;
+            eldest.remove();
+            evictions++;
+        }
+        entries.put(ticket.key, new Entry(ticket, value, size, System.currentTimeMillis() + maxAgeMillis));
+        bytes += size;
+    }
+
+    /**
+     * Free the space of entries whose tables have changed, before
+     * evicting anything that is still valid
+     */
+    private void dropStale() {
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (!entry.ticket.current()) {
+                bytes -= entry.bytes;
+                it.remove();
+                invalidations++;
+            }
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.bytes;
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized Stats stats() {
+        return new Stats(hits, misses, invalidations, evictions, tooLarge, entries.size(), bytes, maxBytes);
+    }
+
+    /**
+     * Immutable, column-wise copy of the basicdata/marks join
+     */
+    static final class StudentMarksRows {
+        private final int[] ids;
+        private final String[] names;
+        private final String[] addresses;
+        private final int[] marks;   // subject1..3 of row i at 3i..3i+2
+        private final int size;
+        private final long bytes;
+
+        private StudentMarksRows(Builder b) {
+            this.ids = b.ids;
+            this.names = b.names;
+            this.addresses = b.addresses;
+            this.marks = b.marks;
+            this.size = b.size;
+            this.bytes = b.bytes;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        void forEach(StudentRepository.StudentMarksVisitor visitor) {
+            for (int i = 0; i < size; i++) {
+                visitor.visit(ids[i], names[i], addresses[i], marks[3 * i], marks[3 * i + 1], marks[3 * i + 2]);
+            }
+        }
+
+        /**
+         * Collects rows as they stream past; gives up (build() returns
+         * null) once the estimate passes maxBytes
+         */
+        static final class Builder implements StudentRepository.StudentMarksVisitor {
+            private static final long ROW_BYTES = 4 + 8 + 8 + 12;
+
+            private final long maxBytes;
+            private int[] ids = new int[256];
+            private String[] names = new String[256];
+            private String[] addresses = new String[256];
+            private int[] marks = new int[3 * 256];
+            private int size;
+            private long bytes = 4 * 16;
+            private boolean overflow;
+
+            Builder(long maxBytes) {
+                this.maxBytes = maxBytes;
+            }
+
+            @Override
+            public void visit(int id, String name, String address, int subject1, int subject2, int subject3) {
+                if (overflow) {
+                    return;
+                }
+                bytes += ROW_BYTES + bytesOf(name) + bytesOf(address);
+                if (bytes > maxBytes) {
+                    overflow = true;
+                    ids = null;
+                    names = addresses = null;
+                    marks = null;
+                    return;
+                }
+                if (size == ids.length) {
+                    ids = Arrays.copyOf(ids, size * 2);
+                    names = Arrays.copyOf(names, size * 2);
+                    addresses = Arrays.copyOf(addresses, size * 2);
+                    marks = Arrays.copyOf(marks, size * 6);
+                }
+                ids[size] = id;
+                names[size] = name;
+                addresses[size] = address;
+                marks[3 * size] = subject1;
+                marks[3 * size + 1] = subject2;
+                marks[3 * size + 2] = subject3;
+                size++;
+            }
+
+            StudentMarksRows build() {
+                if (overflow) {
+                    return null;
+                }
+                ids = Arrays.copyOf(ids, size);
+                names = Arrays.copyOf(names, size);
+                addresses = Arrays.copyOf(addresses, size);
+                marks = Arrays.copyOf(marks, 3 * size);
+                return new StudentMarksRows(this);
+            }
+        }
+    }
+
+    /**
+     * Collects GradeReport rows into an unmodifiable list; gives up (build()
+     * returns null) once the estimate passes maxBytes
+     */
+    static final class GradeRows implements Consumer<GradeReport.GradeRow> {
+        private static final long ROW_BYTES = 8 + 16 + 6 * 4;
+
+        private final long maxBytes;
+        private ArrayList<GradeReport.GradeRow> rows = new ArrayList<>();
+        private long bytes = 16;
+
+        GradeRows(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void accept(GradeReport.GradeRow row) {
+            if (rows == null) {
+                return;
+            }
+            bytes += ROW_BYTES + bytesOf(row.name);
+            if (bytes > maxBytes) {
+                rows = null;
+                return;
+            }
+            rows.add(row);
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        List<GradeReport.GradeRow> build() {
+            if (rows == null) {
+                return null;
+            }
+            rows.trimToSize();
+            return Collections.unmodifiableList(rows);
+        }
+    }
+}
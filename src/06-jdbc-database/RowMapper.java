@@ -0,0 +1,205 @@
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * RowMapper - Typed row mapping with column indexes resolved once per query
+ *
+ * This class demonstrates:
+ * - Owning the projection: the SELECT list is built from the same column
+ *   list the mapper reads, so the two cannot drift apart (no SELECT *)
+ * - Resolving each column label to its index once per ResultSet with
+ *   findColumn(), then reading every row by index
+ * - Two styles: a new typed object per row (StudentRow, MarksRow, ...) or
+ *   one reusable mutable holder refilled per row for allocation-free scans
+ *
+ * A holder mapper returns the same object for every row of a query, so a
+ * consumer must copy anything it wants to keep.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class RowMapper<T> {
+
+    /**
+     * Builds a new object from the current row; at[i] is the index of column i
+     */
+    interface Reader<T> {
+        T read(ResultSet rs, int[] at) throws SQLException;
+    }
+
+    /**
+     * Copies the current row into an existing holder
+     */
+    interface Filler<H> {
+        void fill(ResultSet rs, int[] at, H holder) throws SQLException;
+    }
+
+    /**
+     * Reusable holder for basicdata rows, optionally joined with marks
+     */
+    static final class StudentMarks {
+        int id;
+        String name;
+        String address;
+        int subject1;
+        int subject2;
+        int subject3;
+
+        int average() {
+            return (subject1 + subject2 + subject3) / 3;
+        }
+    }
+
+    // Mappers for the student schema
+
+    static final RowMapper<StudentRow> STUDENT = typed(
+        (rs, at) -> new StudentRow(rs.getInt(at[0]), rs.getString(at[1]), rs.getString(at[2])),
+        "stu_id", "stu_name", "stu_address");
+
+    static final RowMapper<MarksRow> MARKS = typed(
+        (rs, at) -> new MarksRow(rs.getInt(at[0]), rs.getInt(at[1]), rs.getInt(at[2]), rs.getInt(at[3])),
+        "stu_id", "subject1", "subject2", "subject3");
+
+    static final RowMapper<StudentMarks> STUDENT_SCAN = reusing(StudentMarks::new,
+        (rs, at, h) -> {
+            h.id = rs.getInt(at[0]);
+            h.name = rs.getString(at[1]);
+            h.address = rs.getString(at[2]);
+        },
+        "stu_id", "stu_name", "stu_address");
+
+    static final RowMapper<StudentMarks> MARKS_SCAN = reusing(StudentMarks::new,
+        (rs, at, h) -> {
+            h.id = rs.getInt(at[0]);
+            h.subject1 = rs.getInt(at[1]);
+            h.subject2 = rs.getInt(at[2]);
+            h.subject3 = rs.getInt(at[3]);
+        },
+        "stu_id", "subject1", "subject2", "subject3");
+
+    /**
+     * basicdata b INNER JOIN marks m
+     */
+    static final RowMapper<StudentMarks> STUDENT_MARKS_SCAN = reusing(StudentMarks::new,
+        (rs, at, h) -> {
+            h.id = rs.getInt(at[0]);
+            h.name = rs.getString(at[1]);
+            h.address = rs.getString(at[2]);
+            h.subject1 = rs.getInt(at[3]);
+            h.subject2 = rs.getInt(at[4]);
+            h.subject3 = rs.getInt(at[5]);
+        },
+        "b.stu_id", "b.stu_name", "b.stu_address", "m.subject1", "m.subject2", "m.subject3");
+
+    private final String[] expressions;
+    private final String[] labels;
+    private final Reader<T> reader;
+    private final Supplier<T> holderFactory;
+    private final Filler<T> filler;
+
+    private RowMapper(String[] expressions, Reader<T> reader, Supplier<T> holderFactory,
+                      Filler<T> filler) {
+        this.expressions = expressions.clone();
+        this.labels = new String[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            labels[i] = labelOf(expressions[i]);
+        }
+        this.reader = reader;
+        this.holderFactory = holderFactory;
+        this.filler = filler;
+    }
+
+    /**
+     * One new object per row
+     * @param columns SELECT expressions, e.g. "b.stu_id" or "x + y AS total"
+     */
+    static <T> RowMapper<T> typed(Reader<T> reader, String... columns) {
+        return new RowMapper<>(columns, reader, null, null);
+    }
+
+    /**
+     * One holder per query, refilled for every row
+     */
+    static <H> RowMapper<H> reusing(Supplier<H> holderFactory, Filler<H> filler, String... columns) {
+        return new RowMapper<>(columns, null, holderFactory, filler);
+    }
+
+    /**
+     * The comma-separated projection for a SELECT statement
+     */
+    String selectList() {
+        return String.join(", ", expressions);
+    }
+
+    /**
+     * Column label as the driver reports it: the alias after AS, otherwise
+     * the column name without its table qualifier
+     */
+    static String labelOf(String expression) {
+        int as = expression.toUpperCase().lastIndexOf(" AS ");
+        if (as >= 0) {
+            return expression.substring(as + 4).trim();
+        }
+        return expression.substring(expression.lastIndexOf('.') + 1).trim();
+    }
+
+    /**
+     * Resolve the column indexes for this ResultSet (once per query)
+     */
+    Bound bind(ResultSet rs) throws SQLException {
+        int[] at = new int[labels.length];
+        for (int i = 0; i < labels.length; i++) {
+            at[i] = rs.findColumn(labels[i]);
+        }
+        return new Bound(rs, at, holderFactory == null ? null : holderFactory.get());
+    }
+
+    /**
+     * Map every remaining row
+     * @return number of rows mapped
+     */
+    long forEach(ResultSet rs, Consumer<? super T> consumer) throws SQLException {
+        Bound bound = bind(rs);
+        long rows = 0;
+        while (rs.next()) {
+            consumer.accept(bound.map());
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * @return the first row, or null if the result is empty
+     */
+    T first(ResultSet rs) throws SQLException {
+        return rs.next() ? bind(rs).map() : null;
+    }
+
+    /**
+     * A mapper tied to one ResultSet's column positions
+     */
+    final class Bound {
+        private final ResultSet rs;
+        private final int[] at;
+        private final T holder;
+
+        private Bound(ResultSet rs, int[] at, T holder) {
+            this.rs = rs;
+            this.at = at;
+            this.holder = holder;
+        }
+
+        /**
+         * Map the current row
+         */
+        T map() throws SQLException {
+            if (holder == null) {
+                return reader.read(rs, at);
+            }
+            filler.fill(rs, at, holder);
+            return holder;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+/**
+ * ShardedStudentRepository - Students spread over several databases by stu_id
+ *
+ * This class demonstrates:
+ * - Routing single-ID operations to one shard (hash or range partitioning)
+ * - Co-location: a student's marks live on the same shard as the student,
+ *   so the basicdata/marks join and the foreign key stay local
+ * - Scatter-gather scans: every shard streams its rows in parallel and a
+ *   k-way merge (a heap over the shard heads) emits them in stu_id order
+ * - Bounded hand-off queues, so a scan uses constant memory at any size
+ *
+ * Each shard is an ordinary StudentRepository (usually a JdbcStudentRepository
+ * on its own pool). The shard count is fixed: changing it, or the range
+ * bounds, moves rows and needs a re-load.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class ShardedStudentRepository implements StudentRepository, AutoCloseable {
+
+    /**
+     * Maps a stu_id to a shard index
+     */
+    interface Partitioner {
+        int shardOf(int id);
+
+        int shardCount();
+
+        /**
+         * Spread IDs evenly over n shards (Fibonacci hash, so consecutive
+         * IDs land on different shards)
+         */
+        static Partitioner hash(int shards) {
+            if (shards < 1) {
+                throw new IllegalArgumentException("Need at least one shard");
+            }
+            return new Partitioner() {
+                @Override
+                public int shardOf(int id) {
+                    long h = (id * 0x9E3779B9) & 0xFFFFFFFFL;
+                    return (int) ((h * shards) >>> 32);
+                }
+
+                @Override
+                public int shardCount() {
+                    return shards;
+                }
+            };
+        }
+
+        /**
+         * Contiguous ID ranges: range(1000, 2000) puts IDs below 1000 on
+         * shard 0, 1000-1999 on shard 1 and 2000 and above on shard 2
+         */
+        static Partitioner range(int... splitPoints) {
+            int[] splits = splitPoints.clone();
+            for (int i = 1; i < splits.length; i++) {
+                if (splits[i] <= splits[i - 1]) {
+                    throw new IllegalArgumentException("Split points must be strictly increasing");
+                }
+            }
+            return new Partitioner() {
+                @Override
+                public int shardOf(int id) {
+                    int pos = Arrays.binarySearch(splits, id);
+                    return pos >= 0 ? pos + 1 : -pos - 1;
+                }
+
+                @Override
+                public int shardCount() {
+                    return splits.length + 1;
+                }
+            };
+        }
+    }
+
+    private static final int CHUNK_ROWS = 512;
+    private static final int CHUNKS_PER_SHARD = 4;
+
+    private final Partitioner partitioner;
+    private final List<StudentRepository> shards;
+    private final List<AutoCloseable> resources;
+    private final ExecutorService scanners;
+
+    ShardedStudentRepository(Partitioner partitioner, List<StudentRepository> shards) {
+        this(partitioner, shards, Collections.emptyList());
+    }
+
+    /**
+     * @param resources closed with the repository (e.g. the shard pools)
+     */
+    ShardedStudentRepository(Partitioner partitioner, List<StudentRepository> shards,
+                             List<? extends AutoCloseable> resources) {
+        if (partitioner.shardCount() != shards.size()) {
+            throw new IllegalArgumentException("Partitioner expects " + partitioner.shardCount()
+                                               + " shards, got " + shards.size());
+        }
+        this.partitioner = partitioner;
+        this.shards = List.copyOf(shards);
+        this.resources = List.copyOf(resources);
+        AtomicInteger threadNo = new AtomicInteger();
+        this.scanners = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "shard-scan-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * One MySQL database per shard, each with its own connection pool
+     */
+    static ShardedStudentRepository overMySql(Partitioner partitioner, ConnectionPool.Config poolConfig,
+                                              String... urls) throws SQLException {
+        List<StudentRepository> shards = new ArrayList<>(urls.length);
+        List<ConnectionPool> pools = new ArrayList<>(urls.length);
+        try {
+            for (String url : urls) {
+                ConnectionPool pool = new ConnectionPool(poolConfig,
+                    JDBCStudentDemo.DbConnector.factoryFor(url));
+                pools.add(pool);
+                shards.add(new JdbcStudentRepository(pool::getConnection));
+            }
+        } catch (SQLException | RuntimeException e) {
+            pools.forEach(ConnectionPool::close);
+            throw e;
+        }
+        return new ShardedStudentRepository(partitioner, shards, pools);
+    }
+
+    StudentRepository shardFor(int id) {
+        return shards.get(partitioner.shardOf(id));
+    }
+
+    int shardCount() {
+        return shards.size();
+    }
+
+    // Single-ID operations: exactly one shard
+
+    @Override
+    public int insert(int id, String name, String address) throws SQLException {
+        return shardFor(id).insert(id, name, address);
+    }
+
+    /**
+     * Split the rows by shard and batch-insert each group
+     */
+    @Override
+    public int insertAll(Collection<StudentRow> students) throws SQLException {
+        List<List<StudentRow>> groups = groupByShard(students, StudentRow::getId);
+        int rows = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            if (!groups.get(i).isEmpty()) {
+                rows += shards.get(i).insertAll(groups.get(i));
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public int insertAllMarks(Collection<MarksRow> marks) throws SQLException {
+        List<List<MarksRow>> groups = groupByShard(marks, MarksRow::getId);
+        int rows = 0;
+        for (int i = 0; i < groups.size(); i++) {
+            if (!groups.get(i).isEmpty()) {
+                rows += shards.get(i).insertAllMarks(groups.get(i));
+            }
+        }
+        return rows;
+    }
+
+    private <T> List<List<T>> groupByShard(Collection<T> rows, ToIntFunction<T> idOf) {
+        List<List<T>> groups = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            groups.add(new ArrayList<>());
+        }
+        for (T row : rows) {
+            groups.get(partitioner.shardOf(idOf.applyAsInt(row))).add(row);
+        }
+        return groups;
+    }
+
+    @Override
+    public int upsert(int id, String name, String address) throws SQLException {
+        return shardFor(id).upsert(id, name, address);
+    }
+
+    @Override
+    public int updateName(int id, String newName) throws SQLException {
+        return shardFor(id).updateName(id, newName);
+    }
+
+    @Override
+    public int updateAddress(int id, String newAddress) throws SQLException {
+        return shardFor(id).updateAddress(id, newAddress);
+    }
+
+    @Override
+    public int delete(int id) throws SQLException {
+        return shardFor(id).delete(id);
+    }
+
+    @Override
+    public StudentRow findById(int id) throws SQLException {
+        return shardFor(id).findById(id);
+    }
+
+    @Override
+    public int insertMarks(int id, int subject1, int subject2, int subject3) throws SQLException {
+        return shardFor(id).insertMarks(id, subject1, subject2, subject3);
+    }
+
+    @Override
+    public MarksRow findMarks(int id) throws SQLException {
+        return shardFor(id).findMarks(id);
+    }
+
+    // Multi-gets: one call per shard that owns any of the IDs
+
+    @Override
+    public StudentRow[] findByIds(int... ids) throws SQLException {
+        return byShard(ids, new StudentRow[ids.length], StudentRepository::findByIds);
+    }
+
+    @Override
+    public MarksRow[] findMarksByIds(int... ids) throws SQLException {
+        return byShard(ids, new MarksRow[ids.length], StudentRepository::findMarksByIds);
+    }
+
+    private interface ShardLookup<T> {
+        T[] find(StudentRepository shard, int[] ids) throws SQLException;
+    }
+
+    private <T> T[] byShard(int[] ids, T[] result, ShardLookup<T> lookup) throws SQLException {
+        int[] shardOf = new int[ids.length];
+        int[] counts = new int[shards.size()];
+        for (int i = 0; i < ids.length; i++) {
+            shardOf[i] = partitioner.shardOf(ids[i]);
+            counts[shardOf[i]]++;
+        }
+        for (int s = 0; s < counts.length; s++) {
+            if (counts[s] == 0) {
+                continue;
+            }
+            int[] subset = new int[counts[s]];
+            int[] positions = new int[counts[s]];
+            int n = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (shardOf[i] == s) {
+                    subset[n] = ids[i];
+                    positions[n++] = i;
+                }
+            }
+            T[] found = lookup.find(shards.get(s), subset);
+            for (int k = 0; k < n; k++) {
+                result[positions[k]] = found[k];
+            }
+        }
+        return result;
+    }
+
+    // Whole-table operations: scatter to every shard, merge by stu_id
+
+    @Override
+    public void forEachStudent(StudentVisitor visitor) throws SQLException {
+        merge(false, (shard, sink) -> shard.forEachStudent(
+                  (id, name, address) -> sink.add(id, name, address, 0, 0, 0)),
+              chunk -> {
+                  for (int i = chunk.start; i < chunk.count; i++) {
+                      visitor.visit(chunk.ids[i], chunk.names[i], chunk.addresses[i]);
+                  }
+              });
+    }
+
+    @Override
+    public void forEachStudentWithMarks(StudentMarksVisitor visitor) throws SQLException {
+        merge(true, (shard, sink) -> shard.forEachStudentWithMarks(sink::add),
+              chunk -> {
+                  for (int i = chunk.start; i < chunk.count; i++) {
+                      visitor.visit(chunk.ids[i], chunk.names[i], chunk.addresses[i],
+                                    chunk.subject1[i], chunk.subject2[i], chunk.subject3[i]);
+                  }
+              });
+    }
+
+    /**
+     * A block of rows handed from a shard scan to the merger
+     */
+    private static final class Chunk {
+        final int[] ids = new int[CHUNK_ROWS];
+        final String[] names = new String[CHUNK_ROWS];
+        final String[] addresses = new String[CHUNK_ROWS];
+        final int[] subject1;
+        final int[] subject2;
+        final int[] subject3;
+        int count;
+        int start;          // merger: first row not yet emitted
+        SQLException error; // set on the final chunk if the shard scan failed
+
+        Chunk(boolean withMarks) {
+            int n = withMarks ? CHUNK_ROWS : 0;
+            subject1 = new int[n];
+            subject2 = new int[n];
+            subject3 = new int[n];
+        }
+    }
+
+    private static final Chunk END = new Chunk(false);
+
+    /**
+     * Producer side: fills chunks and blocks when the merger falls behind
+     */
+    private static final class ShardSink {
+        final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(CHUNKS_PER_SHARD);
+        final boolean withMarks;
+        volatile boolean cancelled;
+        Chunk current;
+
+        ShardSink(boolean withMarks) {
+            this.withMarks = withMarks;
+            this.current = new Chunk(withMarks);
+        }
+
+        void add(int id, String name, String address, int s1, int s2, int s3) {
+            Chunk c = current;
+            c.ids[c.count] = id;
+            c.names[c.count] = name;
+            c.addresses[c.count] = address;
+            if (withMarks) {
+                c.subject1[c.count] = s1;
+                c.subject2[c.count] = s2;
+                c.subject3[c.count] = s3;
+            }
+            if (++c.count == CHUNK_ROWS) {
+                hand(c);
+                current = new Chunk(withMarks);
+            }
+        }
+
+        void hand(Chunk c) {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+            try {
+                while (!queue.offer(c, 100, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new CancellationException();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * Hand over the last partial chunk followed by END (or the error)
+         */
+        void finish(SQLException error) {
+            if (current.count > 0 || error != null) {
+                current.error = error;
+                hand(current);
+            }
+            hand(END);
+        }
+    }
+
+    private interface ShardScan {
+        void run(StudentRepository shard, ShardSink sink) throws SQLException;
+    }
+
+    private interface ChunkConsumer {
+        void accept(Chunk chunk);
+    }
+
+    /**
+     * Current chunk of one shard in the merge heap
+     */
+    private static final class Cursor {
+        final ShardSink sink;
+        Chunk chunk;
+
+        Cursor(ShardSink sink) {
+            this.sink = sink;
+        }
+
+        int head() {
+            return chunk.ids[chunk.start];
+        }
+
+        /**
+         * Move to the next chunk with rows; false when the shard is done
+         */
+        boolean advance() throws SQLException {
+            while (true) {
+                Chunk next;
+                try {
+                    next = sink.queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while merging shard scans", e);
+                }
+                if (next.error != null) {
+                    throw next.error;
+                }
+                if (next == END) {
+                    return false;
+                }
+                if (next.count > 0) {
+                    chunk = next;
+                    return true;
+                }
+            }
+        }
+    }
+
+    private void merge(boolean withMarks, ShardScan scan, ChunkConsumer consumer) throws SQLException {
+        List<Cursor> cursors = new ArrayList<>(shards.size());
+        for (StudentRepository shard : shards) {
+            ShardSink sink = new ShardSink(withMarks);
+            cursors.add(new Cursor(sink));
+            scanners.execute(() -> {
+                SQLException error = null;
+                try {
+                    scan.run(shard, sink);
+                } catch (SQLException e) {
+                    error = e;
+                } catch (CancellationException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    error = new SQLException("Shard scan failed", e);
+                }
+                try {
+                    sink.finish(error);
+                } catch (CancellationException ignored) {
+                    // merger gave up; nobody is waiting for the rest
+                }
+            });
+        }
+
+        PriorityQueue<Cursor> heap = new PriorityQueue<>(shards.size(),
+            (a, b) -> Integer.compare(a.head(), b.head()));
+        try {
+            for (Cursor c : cursors) {
+                if (c.advance()) {
+                    heap.add(c);
+                }
+            }
+            while (!heap.isEmpty()) {
+                Cursor c = heap.poll();
+                Chunk chunk = c.chunk;
+                // Emit the run of rows that stays below the next shard's head
+                int limit = chunk.count;
+                if (!heap.isEmpty()) {
+                    int bound = heap.peek().head();
+                    int end = chunk.start;
+                    while (end < chunk.count && chunk.ids[end] <= bound) {
+                        end++;
+                    }
+                    limit = Math.max(end, chunk.start + 1);
+                }
+                int count = chunk.count;
+                chunk.count = limit;
+                consumer.accept(chunk);
+                chunk.count = count;
+                chunk.start = limit;
+                if (chunk.start < chunk.count || c.advance()) {
+                    heap.add(c);
+                }
+            }
+        } finally {
+            for (Cursor c : cursors) {
+                c.sink.cancelled = true;
+                c.sink.queue.clear();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        scanners.shutdownNow();
+        for (AutoCloseable resource : resources) {
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("⚠️  Failed to close shard resource: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * StreamingExporter - Constant-memory export of large result sets
+ *
+ * This class demonstrates:
+ * - Forward-only, read-only cursors with a tunable fetch size
+ * - Pushing rows to a pluggable sink (stdout, file, callback)
+ * - Reusing one row buffer, so memory stays bounded by the fetch size
+ * - Keyset pagination on stu_id for resumable exports
+ *
+ * With MySQL Connector/J a positive fetch size only streams when the URL
+ * has useCursorFetch=true (DbConnector sets it); Integer.MIN_VALUE selects
+ * the driver's row-by-row streaming mode instead.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class StreamingExporter {
+
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
+    static final String STUDENTS_SQL =
+        "SELECT " + RowMapper.STUDENT.selectList() + " FROM basicdata ORDER BY stu_id";
+
+    static final String STUDENTS_PAGE_SQL =
+        "SELECT " + RowMapper.STUDENT.selectList() + " FROM basicdata " +
+        "WHERE stu_id > ? ORDER BY stu_id LIMIT ?";
+
+    static final String STUDENTS_WITH_MARKS_SQL =
+        "SELECT " + RowMapper.STUDENT_MARKS_SCAN.selectList() +
+        " FROM basicdata b INNER JOIN marks m ON b.stu_id = m.stu_id ORDER BY b.stu_id";
+
+    /**
+     * Receives exported rows. The values array is reused for every row,
+     * so a sink must copy anything it wants to keep.
+     */
+    interface RowSink extends Closeable {
+        void begin(String[] columns) throws IOException;
+        void row(Object[] values) throws IOException;
+        default void end(long rowCount) throws IOException { }
+        @Override
+        default void close() throws IOException { }
+    }
+
+    /**
+     * Tab-separated rows on System.out
+     */
+    static RowSink stdoutSink() {
+        return new DelimitedSink(new BufferedWriter(
+            new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 64 * 1024), '\t', false);
+    }
+
+    /**
+     * CSV file with a header line
+     */
+    static RowSink fileSink(Path file) throws IOException {
+        return new DelimitedSink(Files.newBufferedWriter(file, StandardCharsets.UTF_8), ',', true);
+    }
+
+    /**
+     * CSV file that keeps what an interrupted export already wrote and
+     * continues after it (resume with the header turned off)
+     */
+    static RowSink appendingFileSink(Path file) throws IOException {
+        return new DelimitedSink(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND), ',', true);
+    }
+
+    /**
+     * Hands every row to a callback (the array is reused between calls)
+     */
+    static RowSink callbackSink(Consumer<Object[]> callback) {
+        return new RowSink() {
+            @Override
+            public void begin(String[] columns) { }
+
+            @Override
+            public void row(Object[] values) {
+                callback.accept(values);
+            }
+        };
+    }
+
+    /**
+     * Writes delimiter-separated text, quoting values when needed
+     */
+    static class DelimitedSink implements RowSink {
+        private final Writer out;
+        private final char delimiter;
+        private final boolean closeWriter;
+
+        DelimitedSink(Writer out, char delimiter, boolean closeWriter) {
+            this.out = out;
+            this.delimiter = delimiter;
+            this.closeWriter = closeWriter;
+        }
+
+        @Override
+        public void begin(String[] columns) throws IOException {
+            row(columns);
+        }
+
+        @Override
+        public void row(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    out.write(delimiter);
+                }
+                writeValue(values[i]);
+            }
+            out.write('\n');
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            String s = value.toString();
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                out.write(s);
+                return;
+            }
+            out.write('"');
+            out.write(s.replace("\"", "\"\""));
+            out.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closeWriter) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        }
+    }
+
+    private final int fetchSize;
+
+    StreamingExporter() {
+        this(DEFAULT_FETCH_SIZE);
+    }
+
+    StreamingExporter(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Forward-only, read-only statement with the given fetch size
+     */
+    static Statement streamingStatement(Connection conn, int fetchSize) throws SQLException {
+        Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        stmt.setFetchSize(fetchSize);
+        return stmt;
+    }
+
+    static Statement streamingStatement(Connection conn) throws SQLException {
+        return streamingStatement(conn, DEFAULT_FETCH_SIZE);
+    }
+
+    /**
+     * Stream every row of the query into the sink
+     * @return number of rows exported
+     */
+    long export(Connection conn, String sql, RowSink sink) throws SQLException, IOException {
+        try (Statement stmt = streamingStatement(conn, fetchSize);
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return drain(rs, sink);
+        }
+    }
+
+    /**
+     * Export one keyset page of basicdata: rows with stu_id > afterId
+     * @return the last stu_id written, or afterId when the page was empty
+     */
+    int exportStudentsPage(Connection conn, int afterId, int pageSize, RowSink sink)
+            throws SQLException, IOException {
+        try (PreparedStatement pstmt = conn.prepareStatement(STUDENTS_PAGE_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(Math.min(fetchSize, pageSize));
+            pstmt.setInt(1, afterId);
+            pstmt.setInt(2, pageSize);
+            int lastId = afterId;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                RowMapper<StudentRow>.Bound mapper = RowMapper.STUDENT.bind(rs);
+                Object[] values = new Object[3];
+                while (rs.next()) {
+                    StudentRow student = mapper.map();
+                    lastId = student.getId();
+                    values[0] = lastId;
+                    values[1] = student.getName();
+                    values[2] = student.getAddress();
+                    sink.row(values);
+                }
+            }
+            return lastId;
+        }
+    }
+
+    /**
+     * Export basicdata page by page, starting after the given stu_id.
+     * The checkpoint callback receives the last exported stu_id after each
+     * page, so an interrupted export can resume from there.
+     * @param withHeader false when appending to the output of an interrupted
+     *                   run, so the sink's header is not written twice
+     * @return the last stu_id exported
+     */
+    int exportStudentsResumable(Connection conn, int startAfterId, int pageSize, boolean withHeader,
+                                RowSink sink, IntConsumer checkpoint)
+            throws SQLException, IOException {
+        if (withHeader) {
+            sink.begin(new String[] { "stu_id", "stu_name", "stu_address" });
+        }
+        long[] rows = { 0 };
+        RowSink counted = new RowSink() {
+            @Override
+            public void begin(String[] columns) { }
+
+            @Override
+            public void row(Object[] values) throws IOException {
+                rows[0]++;
+                sink.row(values);
+            }
+        };
+        int lastId = startAfterId;
+        while (true) {
+            int next = exportStudentsPage(conn, lastId, pageSize, counted);
+            if (next == lastId) {
+                sink.end(rows[0]);
+                return lastId;
+            }
+            lastId = next;
+            checkpoint.accept(lastId);
+        }
+    }
+
+    private static long drain(ResultSet rs, RowSink sink) throws SQLException, IOException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int columnCount = meta.getColumnCount();
+        String[] columns = new String[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = meta.getColumnLabel(i + 1);
+        }
+        sink.begin(columns);
+
+        Object[] values = new Object[columnCount];
+        long rows = 0;
+        while (rs.next()) {
+            for (int i = 0; i < columnCount; i++) {
+                values[i] = rs.getObject(i + 1);
+            }
+            sink.row(values);
+            rows++;
+        }
+        sink.end(rows);
+        return rows;
+    }
+}
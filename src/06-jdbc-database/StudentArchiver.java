@@ -0,0 +1,366 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.function.Consumer;
+
+/**
+ * StudentArchiver - Moves a range of students and their marks into archive tables
+ *
+ * This class demonstrates:
+ * - Keyset chunks: each chunk is the next few hundred stu_ids after the last
+ *   one done, so no chunk ever scans or locks more than it moves
+ * - One short transaction per chunk (lock, copy, delete, commit), so live
+ *   inserts and updates wait for milliseconds, never for the whole purge
+ * - Throttling: a pause between chunks, an optional rows-per-second cap, and
+ *   a chunk size that halves when a chunk is slow and grows back when fast
+ * - A checkpoint file written after every committed chunk, so a stopped job
+ *   resumes where it left off
+ *
+ * Each chunk runs:
+ *   SELECT stu_id ... FOR UPDATE             (locks the chunk's key range)
+ *   INSERT INTO basicdata_archive SELECT ...  (and marks_archive)
+ *   DELETE FROM marks ...; DELETE FROM basicdata ...
+ *   COMMIT
+ * The archive tables are in DATABASE_SETUP.md. With copyToArchive(false)
+ * the INSERTs are skipped, which turns the job into a chunked bulk delete.
+ *
+ * An archiver works on one database: the DbConnector primary, or the
+ * ConnectionSource it is given (e.g. one shard's pool). Students inserted
+ * into the range behind the checkpoint after the job passed it are not
+ * archived; run again without the checkpoint file to pick them up.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class StudentArchiver {
+
+    /**
+     * Archival settings (all times in milliseconds)
+     */
+    static class Config {
+        int chunkSize = 500;
+        int minChunkSize = 10;
+        long maxChunkMillis = 200;
+        long pauseMillis = 50;
+        int maxRowsPerSecond = 0;       // 0 = no cap
+        int lockWaitSeconds = 2;
+        int progressEveryChunks = 20;
+        boolean copyToArchive = true;
+        Path checkpointFile = Paths.get("archive.checkpoint");
+
+        Config chunkSize(int value) { this.chunkSize = value; return this; }
+        Config minChunkSize(int value) { this.minChunkSize = value; return this; }
+        Config maxChunkMillis(long value) { this.maxChunkMillis = value; return this; }
+        Config pauseMillis(long value) { this.pauseMillis = value; return this; }
+        Config maxRowsPerSecond(int value) { this.maxRowsPerSecond = value; return this; }
+        Config lockWaitSeconds(int value) { this.lockWaitSeconds = value; return this; }
+        Config progressEveryChunks(int value) { this.progressEveryChunks = value; return this; }
+        Config copyToArchive(boolean value) { this.copyToArchive = value; return this; }
+        Config checkpointFile(Path value) { this.checkpointFile = value; return this; }
+
+        void validate() {
+            if (minChunkSize < 1 || minChunkSize > chunkSize) {
+                throw new IllegalArgumentException("Need 1 <= minChunkSize <= chunkSize");
+            }
+            if (maxChunkMillis < 1 || pauseMillis < 0 || maxRowsPerSecond < 0
+                    || lockWaitSeconds < 1 || progressEveryChunks < 1) {
+                throw new IllegalArgumentException("Invalid archiver timing settings");
+            }
+        }
+    }
+
+    /**
+     * Totals so far (also the final report)
+     */
+    static class Progress {
+        final long chunks;
+        final long students;
+        final long marks;
+        final long retries;
+        final long lastId;
+        final int chunkSize;
+        final long elapsedNanos;
+        final boolean done;
+
+        Progress(long chunks, long students, long marks, long retries, long lastId,
+                 int chunkSize, long elapsedNanos, boolean done) {
+            this.chunks = chunks;
+            this.students = students;
+            this.marks = marks;
+            this.retries = retries;
+            this.lastId = lastId;
+            this.chunkSize = chunkSize;
+            this.elapsedNanos = elapsedNanos;
+            this.done = done;
+        }
+
+        double studentsPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : students * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s%d students, %d marks rows in %d chunks (%.1fs, %.0f students/s), "
+                                 + "up to stu_id %d, chunk size %d, %d retries",
+                                 done ? "Done: " : "", students, marks, chunks, elapsedNanos / 1e9,
+                                 studentsPerSecond(), lastId, chunkSize, retries);
+        }
+    }
+
+    static final String LOCK_CHUNK_SQL =
+        "SELECT stu_id FROM basicdata WHERE stu_id > ? AND stu_id <= ? ORDER BY stu_id LIMIT ? FOR UPDATE";
+    static final String COPY_STUDENTS_SQL =
+        "INSERT INTO basicdata_archive (stu_id, stu_name, stu_address, archived_at) " +
+        "SELECT stu_id, stu_name, stu_address, ? FROM basicdata WHERE stu_id > ? AND stu_id <= ?";
+    static final String COPY_MARKS_SQL =
+        "INSERT INTO marks_archive (stu_id, subject1, subject2, subject3, archived_at) " +
+        "SELECT stu_id, subject1, subject2, subject3, ? FROM marks WHERE stu_id > ? AND stu_id <= ?";
+    static final String DELETE_MARKS_SQL =
+        "DELETE FROM marks WHERE stu_id > ? AND stu_id <= ?";
+    static final String DELETE_STUDENTS_SQL =
+        "DELETE FROM basicdata WHERE stu_id > ? AND stu_id <= ?";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final Config config;
+    private final StudentDao.ConnectionSource source;
+
+    StudentArchiver(Config config) {
+        this(config, StudentDao.DEFAULT_SOURCE);
+    }
+
+    StudentArchiver(Config config, StudentDao.ConnectionSource source) {
+        config.validate();
+        this.config = config;
+        this.source = source;
+    }
+
+    /**
+     * Archive (or delete) every student with fromId <= stu_id <= toId,
+     * resuming from the checkpoint file if it records the same range
+     * @param progress called every progressEveryChunks chunks and at the end
+     */
+    Progress archive(int fromId, int toId, Consumer<Progress> progress)
+            throws SQLException, IOException, InterruptedException {
+        if (fromId > toId) {
+            throw new IllegalArgumentException("fromId must not be greater than toId");
+        }
+        Properties checkpoint = loadCheckpoint(fromId, toId);
+        long after = Long.parseLong(checkpoint.getProperty("lastId", Long.toString(fromId - 1L)));
+        long chunks = Long.parseLong(checkpoint.getProperty("chunks", "0"));
+        long students = Long.parseLong(checkpoint.getProperty("students", "0"));
+        long marks = Long.parseLong(checkpoint.getProperty("marks", "0"));
+        long retries = 0;
+        int size = config.chunkSize;
+        Timestamp archivedAt = new Timestamp(System.currentTimeMillis());
+        long start = System.nanoTime();
+
+        while (after < toId) {
+            long chunkStart = System.nanoTime();
+            Chunk chunk = null;
+            for (int attempt = 1; chunk == null; attempt++) {
+                try {
+                    chunk = runChunk(after, toId, size, archivedAt);
+                } catch (SQLException e) {
+                    if (attempt >= MAX_ATTEMPTS || !StudentTransaction.isRetryable(e)) {
+                        throw e;
+                    }
+                    // Someone else holds locks in this range: back off and take less
+                    retries++;
+                    size = Math.max(config.minChunkSize, size / 2);
+                    Thread.sleep(config.pauseMillis + 100L * attempt);
+                }
+            }
+            if (chunk.ids.length == 0) {
+                break;
+            }
+            after = chunk.ids[chunk.ids.length - 1];
+            chunks++;
+            students += chunk.students;
+            marks += chunk.marks;
+            saveCheckpoint(checkpoint, after, chunks, students, marks);
+
+            long chunkMillis = (System.nanoTime() - chunkStart) / 1_000_000;
+            if (chunkMillis > config.maxChunkMillis) {
+                size = Math.max(config.minChunkSize, size / 2);
+            } else if (chunkMillis * 2 < config.maxChunkMillis) {
+                size = Math.min(config.chunkSize, size + size / 4 + 1);
+            }
+            if (chunks % config.progressEveryChunks == 0) {
+                progress.accept(new Progress(chunks, students, marks, retries, after, size,
+                                             System.nanoTime() - start, false));
+            }
+            throttle(chunk.ids.length, chunkMillis);
+        }
+
+        Files.deleteIfExists(config.checkpointFile);
+        Progress result = new Progress(chunks, students, marks, retries, after, size,
+                                       System.nanoTime() - start, true);
+        progress.accept(result);
+        return result;
+    }
+
+    /**
+     * Sleep at least pauseMillis, and long enough to stay under maxRowsPerSecond
+     */
+    private void throttle(int rows, long chunkMillis) throws InterruptedException {
+        long sleep = config.pauseMillis;
+        if (config.maxRowsPerSecond > 0) {
+            sleep = Math.max(sleep, rows * 1000L / config.maxRowsPerSecond - chunkMillis);
+        }
+        if (sleep > 0) {
+            Thread.sleep(sleep);
+        }
+    }
+
+    /**
+     * What one committed chunk moved
+     */
+    private static final class Chunk {
+        final int[] ids;
+        final int students;
+        final int marks;
+
+        Chunk(int[] ids, int students, int marks) {
+            this.ids = ids;
+            this.students = students;
+            this.marks = marks;
+        }
+    }
+
+    /**
+     * Lock, copy and delete the next chunk in one transaction
+     */
+    private Chunk runChunk(long after, int toId, int size, Timestamp archivedAt) throws SQLException {
+        // Queued name/address changes for the range are written first, so the
+        // archive gets the latest values and a rolled-back chunk loses none.
+        // The flush needs a connection of its own: do it before taking ours.
+        StudentDao.flushPending(after, toId);
+        Chunk chunk;
+        try (QueryMetrics.Timer timer = QueryMetrics.start("archiveChunk");
+             Connection conn = timer.connected(source.primary())) {
+            conn.setAutoCommit(false);
+            try {
+                setLockWait(conn, Integer.toString(config.lockWaitSeconds));
+                int[] ids = lockChunk(conn, after, toId, size);
+                if (ids.length == 0) {
+                    conn.commit();
+                    timer.executed(0);
+                    return new Chunk(ids, 0, 0);
+                }
+                long last = ids[ids.length - 1];
+                int marks = config.copyToArchive ? update(conn, COPY_MARKS_SQL, archivedAt, after, last) : 0;
+                int students = config.copyToArchive ? update(conn, COPY_STUDENTS_SQL, archivedAt, after, last) : 0;
+                int marksDeleted = update(conn, DELETE_MARKS_SQL, null, after, last);
+                int studentsDeleted = update(conn, DELETE_STUDENTS_SQL, null, after, last);
+                if (studentsDeleted != ids.length
+                        || (config.copyToArchive && (students != studentsDeleted || marks != marksDeleted))) {
+                    // Only possible if rows slipped into the range (e.g. READ COMMITTED, no gap locks)
+                    throw new SQLTransactionRollbackException("Chunk (" + after + ", " + last
+                        + "] changed while it was being archived", "40001");
+                }
+                conn.commit();
+                timer.executed(ids.length);
+                chunk = new Chunk(ids, studentsDeleted, marksDeleted);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+                setLockWait(conn, "DEFAULT");
+            }
+        }
+        forget(chunk.ids);
+        return chunk;
+    }
+
+    private static void setLockWait(Connection conn, String seconds) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SET SESSION innodb_lock_wait_timeout = " + seconds);
+        }
+    }
+
+    private static int[] lockChunk(Connection conn, long after, int toId, int size) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(LOCK_CHUNK_SQL)) {
+            pstmt.setLong(1, after);
+            pstmt.setInt(2, toId);
+            pstmt.setInt(3, size);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                int[] ids = new int[size];
+                int n = 0;
+                while (rs.next()) {
+                    ids[n++] = rs.getInt(1);
+                }
+                return Arrays.copyOf(ids, n);
+            }
+        }
+    }
+
+    private static int update(Connection conn, String sql, Timestamp archivedAt, long after, long last)
+            throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (archivedAt != null) {
+                pstmt.setTimestamp(index++, archivedAt);
+            }
+            pstmt.setLong(index++, after);
+            pstmt.setLong(index, last);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Drop cached copies of a committed chunk's students (after its
+     * connection is back in the pool: discardPending may wait for a flush)
+     */
+    private static void forget(int[] ids) {
+        for (int id : ids) {
+            StudentDao.discardPending(id);
+            StudentDao.CACHE.invalidate(id);
+            ChangeFeed.STUDENTS.changed(id);
+            ChangeFeed.MARKS.changed(id);
+        }
+    }
+
+    private Properties loadCheckpoint(int fromId, int toId) throws IOException {
+        Properties checkpoint = new Properties();
+        String range = fromId + ".." + toId;
+        if (Files.exists(config.checkpointFile)) {
+            try (Reader in = Files.newBufferedReader(config.checkpointFile, StandardCharsets.UTF_8)) {
+                checkpoint.load(in);
+            }
+            String recorded = checkpoint.getProperty("range");
+            if (!range.equals(recorded)) {
+                throw new IOException("Checkpoint " + config.checkpointFile + " belongs to range "
+                                      + recorded + ", not " + range);
+            }
+        }
+        checkpoint.setProperty("range", range);
+        return checkpoint;
+    }
+
+    /**
+     * Record a committed chunk; written to a temp file and moved into place
+     */
+    private void saveCheckpoint(Properties checkpoint, long lastId, long chunks, long students, long marks)
+            throws IOException {
+        checkpoint.setProperty("lastId", Long.toString(lastId));
+        checkpoint.setProperty("chunks", Long.toString(chunks));
+        checkpoint.setProperty("students", Long.toString(students));
+        checkpoint.setProperty("marks", Long.toString(marks));
+        Path tmp = config.checkpointFile.resolveSibling(config.checkpointFile.getFileName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            checkpoint.store(out, "StudentArchiver progress: lastId = last archived stu_id");
+        }
+        Files.move(tmp, config.checkpointFile, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,510 @@
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * StudentBenchmark - Throughput, latency and allocation baseline for the
+ * student operations
+ *
+ * This class demonstrates:
+ * - A small benchmark harness: warm-up iterations, then measured iterations
+ * - Per-operation latency percentiles (QueryMetrics.LatencyHistogram)
+ * - Allocation per operation from the JVM's per-thread allocation counter
+ * - Keeping results alive in a "blackhole" so the JIT cannot delete the work
+ *
+ * Benchmarks: single insert vs batched insert, lookup by ID, name update,
+ * and the three console reports (all students, with marks, with grades),
+ * rendered through JDBCStudentDemo into a discarding channel.
+ *
+ * Usage:
+ *   java -Xmx6g StudentBenchmark [--target=memory|mysql] [--rows=10000,1000000,10000000]
+ *                                [--warmup=3] [--iterations=5] [--millis=1000] [--only=findById,...]
+ *                                [--report-cache]
+ *
+ * The default target is the InMemoryStudentRepository stand-in. The mysql
+ * target uses the DbConnector database and generated IDs from 1,000,000,000
+ * up, which are deleted again at the end. There, findById is served by the
+ * StudentDao cache after the first lookup of each ID. The join reports
+ * run their query every time unless --report-cache is given.
+ *
+ * There is no JMH here because this module has no build file. Each
+ * operation is timed on its own with System.nanoTime(), so very fast
+ * operations (tens of nanoseconds) include some timer overhead. Read the
+ * results as a baseline to compare against, not as absolute truth.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+public class StudentBenchmark {
+
+    static final int BASE_ID = 1_000_000_000;
+    private static final int BATCH_ROWS = 1_000;
+    private static final int INSERTS_PER_ITERATION = 10_000;
+    private static final String[] NAMES = new String[1024];
+    private static final String[] CITIES = {
+        "Colombo", "Kandy", "Galle", "Jaffna", "Matara", "Kurunegala", "Negombo", "Badulla"
+    };
+
+    static {
+        for (int i = 0; i < NAMES.length; i++) {
+            NAMES[i] = "Student " + i;
+        }
+    }
+
+    /**
+     * Prevents dead-code elimination of benchmark results
+     */
+    static volatile long blackhole;
+
+    /**
+     * One benchmarked operation
+     */
+    abstract static class Case {
+        final String name;
+
+        Case(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Untimed preparation before each iteration
+         */
+        void beforeIteration() throws SQLException {
+        }
+
+        /**
+         * @param i operation number within the iteration
+         * @return any value derived from the work
+         */
+        abstract long op(int i) throws SQLException;
+
+        /**
+         * Largest number of ops per iteration (e.g. to bound inserted rows)
+         */
+        int maxOps() {
+            return Integer.MAX_VALUE;
+        }
+
+        /**
+         * Rows touched by one op, for the rows/s column
+         */
+        long rowsPerOp() {
+            return 1;
+        }
+
+        /**
+         * Untimed clean-up after each iteration
+         */
+        void afterIteration() throws SQLException {
+        }
+    }
+
+    /**
+     * Measured numbers of one case
+     */
+    static class Result {
+        final String name;
+        final long datasetRows;
+        final long ops;
+        final double opsPerSecond;
+        final double rowsPerSecond;
+        final QueryMetrics.LatencyHistogram latency;
+        final double bytesPerOp;
+        final double allocMbPerSecond;
+
+        Result(String name, long datasetRows, long ops, long nanos, long rowsPerOp,
+               QueryMetrics.LatencyHistogram latency, long allocatedBytes) {
+            this.name = name;
+            this.datasetRows = datasetRows;
+            this.ops = ops;
+            this.opsPerSecond = nanos == 0 ? 0 : ops * 1e9 / nanos;
+            this.rowsPerSecond = opsPerSecond * rowsPerOp;
+            this.latency = latency;
+            this.bytesPerOp = allocatedBytes < 0 || ops == 0 ? Double.NaN : (double) allocatedBytes / ops;
+            this.allocMbPerSecond = allocatedBytes < 0 || nanos == 0 ? Double.NaN
+                                  : allocatedBytes * 1e9 / nanos / (1024 * 1024);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-22s %10d %12.1f %12.0f %10.2f %10.2f %10.2f %12.1f %10.1f",
+                                 name, datasetRows, opsPerSecond, rowsPerSecond,
+                                 latency.percentile(0.50) / 1e3, latency.percentile(0.99) / 1e3,
+                                 latency.percentile(0.999) / 1e3, bytesPerOp, allocMbPerSecond);
+        }
+
+        static String header() {
+            return String.format("%-22s %10s %12s %12s %10s %10s %10s %12s %10s",
+                                 "Benchmark", "Dataset", "Ops/s", "Rows/s", "p50 us",
+                                 "p99 us", "p99.9 us", "Alloc B/op", "Alloc MB/s");
+        }
+    }
+
+    private final StudentRepository repository;
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final long iterationNanos;
+    private final com.sun.management.ThreadMXBean threads;
+
+    StudentBenchmark(StudentRepository repository, int warmupIterations, int measuredIterations,
+                     long iterationMillis) {
+        this.repository = repository;
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threads = bean instanceof com.sun.management.ThreadMXBean
+                     ? (com.sun.management.ThreadMXBean) bean : null;
+        if (threads != null && threads.isThreadAllocatedMemorySupported()) {
+            threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    /**
+     * Run warm-up and measured iterations of one case
+     */
+    Result run(Case c, long datasetRows) throws SQLException {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(c, null);
+        }
+        System.gc();
+        QueryMetrics.LatencyHistogram latency = new QueryMetrics.LatencyHistogram();
+        long ops = 0;
+        long nanos = 0;
+        long allocated = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            long[] totals = iteration(c, latency);
+            ops += totals[0];
+            nanos += totals[1];
+            allocated = totals[2] < 0 || allocated < 0 ? -1 : allocated + totals[2];
+        }
+        return new Result(c.name, datasetRows, ops, nanos, c.rowsPerOp(), latency, allocated);
+    }
+
+    /**
+     * @return { ops, timed nanos, allocated bytes (-1 if unsupported) }
+     */
+    private long[] iteration(Case c, QueryMetrics.LatencyHistogram latency) throws SQLException {
+        c.beforeIteration();
+        long sink = 0;
+        int ops = 0;
+        long timed = 0;
+        long allocStart = allocatedBytes();
+        long allocEnd;
+        try {
+            int max = c.maxOps();
+            while (ops < max && timed < iterationNanos) {
+                long start = System.nanoTime();
+                sink += c.op(ops);
+                long elapsed = System.nanoTime() - start;
+                timed += elapsed;
+                if (latency != null) {
+                    latency.record(elapsed);
+                }
+                ops++;
+            }
+            allocEnd = allocatedBytes();
+        } finally {
+            c.afterIteration();
+        }
+        blackhole += sink;
+        return new long[] { ops, timed, allocStart < 0 ? -1 : allocEnd - allocStart };
+    }
+
+    private long allocatedBytes() {
+        if (threads == null || !threads.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // Dataset
+
+    static String nameFor(int i) {
+        return NAMES[i & (NAMES.length - 1)];
+    }
+
+    static String cityFor(int i) {
+        return CITIES[i % CITIES.length];
+    }
+
+    /**
+     * Students BASE_ID .. BASE_ID+rows-1; nine in ten have marks
+     */
+    static void load(StudentRepository repository, int rows) throws SQLException {
+        Random random = new Random(42);
+        List<StudentRow> students = new ArrayList<>(BATCH_ROWS * 10);
+        List<MarksRow> marks = new ArrayList<>(BATCH_ROWS * 10);
+        for (int i = 0; i < rows; i++) {
+            int id = BASE_ID + i;
+            students.add(new StudentRow(id, nameFor(i), cityFor(i)));
+            if (i % 10 != 9) {
+                marks.add(new MarksRow(id, random.nextInt(101), random.nextInt(101), random.nextInt(101)));
+            }
+            if (students.size() == BATCH_ROWS * 10 || i == rows - 1) {
+                repository.insertAll(students);
+                repository.insertAllMarks(marks);
+                students.clear();
+                marks.clear();
+            }
+        }
+    }
+
+    /**
+     * All benchmark cases against a loaded dataset of the given size
+     */
+    List<Case> cases(int rows) {
+        List<Case> cases = new ArrayList<>();
+        int[] lookupIds = new int[1 << 16];
+        Random random = new Random(7);
+        for (int i = 0; i < lookupIds.length; i++) {
+            lookupIds[i] = BASE_ID + random.nextInt(rows);
+        }
+        int freshBase = BASE_ID + rows;
+
+        cases.add(new Case("insertSingle") {
+            @Override
+            long op(int i) throws SQLException {
+                return repository.insert(freshBase + i, nameFor(i), cityFor(i));
+            }
+
+            @Override
+            int maxOps() {
+                return INSERTS_PER_ITERATION;
+            }
+
+            @Override
+            void afterIteration() throws SQLException {
+                deleteFresh(freshBase, INSERTS_PER_ITERATION);
+            }
+        });
+
+        cases.add(new Case("insertBatch" + BATCH_ROWS) {
+            private final List<List<StudentRow>> batches = new ArrayList<>();
+
+            @Override
+            void beforeIteration() {
+                batches.clear();
+                for (int b = 0; b < INSERTS_PER_ITERATION / BATCH_ROWS; b++) {
+                    List<StudentRow> batch = new ArrayList<>(BATCH_ROWS);
+                    for (int k = 0; k < BATCH_ROWS; k++) {
+                        int n = b * BATCH_ROWS + k;
+                        batch.add(new StudentRow(freshBase + n, nameFor(n), cityFor(n)));
+                    }
+                    batches.add(batch);
+                }
+            }
+
+            @Override
+            long op(int i) throws SQLException {
+                return repository.insertAll(batches.get(i));
+            }
+
+            @Override
+            int maxOps() {
+                return INSERTS_PER_ITERATION / BATCH_ROWS;
+            }
+
+            @Override
+            long rowsPerOp() {
+                return BATCH_ROWS;
+            }
+
+            @Override
+            void afterIteration() throws SQLException {
+                deleteFresh(freshBase, INSERTS_PER_ITERATION);
+            }
+        });
+
+        cases.add(new Case("findById") {
+            @Override
+            long op(int i) throws SQLException {
+                StudentRow row = repository.findById(lookupIds[i & (lookupIds.length - 1)]);
+                return row == null ? 0 : row.getId();
+            }
+        });
+
+        cases.add(new Case("updateName") {
+            @Override
+            long op(int i) throws SQLException {
+                return repository.updateName(lookupIds[i & (lookupIds.length - 1)], nameFor(i));
+            }
+        });
+
+        WritableByteChannel discard = new DiscardChannel();
+        cases.add(new Case("displayAllStudents") {
+            @Override
+            long op(int i) {
+                JDBCStudentDemo.displayAllStudents(ReportRenderer.Layout.FIXED, discard);
+                return i;
+            }
+
+            @Override
+            long rowsPerOp() {
+                return rows;
+            }
+        });
+
+        cases.add(new Case("displayWithMarks") {
+            @Override
+            long op(int i) {
+                JDBCStudentDemo.displayStudentsWithMarks(ReportRenderer.Layout.FIXED, discard);
+                return i;
+            }
+
+            @Override
+            long rowsPerOp() {
+                return rows - rows / 10;
+            }
+        });
+
+        cases.add(new Case("displayWithGrades") {
+            @Override
+            long op(int i) {
+                JDBCStudentDemo.displayStudentsWithGrades(ReportRenderer.Layout.FIXED, discard);
+                return i;
+            }
+
+            @Override
+            long rowsPerOp() {
+                return rows - rows / 10;
+            }
+        });
+        return cases;
+    }
+
+    private void deleteFresh(int firstId, int count) throws SQLException {
+        for (int i = 0; i < count; i++) {
+            repository.delete(firstId + i);
+        }
+    }
+
+    /**
+     * Counts bytes and throws them away
+     */
+    static class DiscardChannel implements WritableByteChannel {
+        long bytes;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            bytes += n;
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Remove every generated row from the MySQL database (marks cascade)
+     */
+    static void cleanUpMySql() {
+        try (Connection conn = JDBCStudentDemo.DbConnector.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM basicdata WHERE stu_id >= ?")) {
+            pstmt.setInt(1, BASE_ID);
+            System.out.println("   Removed " + pstmt.executeUpdate() + " generated students");
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        }
+    }
+
+    public static void main(String[] args) {
+        String target = "memory";
+        int[] sizes = { 10_000, 1_000_000, 10_000_000 };
+        int warmup = 3;
+        int iterations = 5;
+        long millis = 1_000;
+        List<String> only = new ArrayList<>();
+        boolean reportCache = false;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--target=")) {
+                target = value;
+            } else if (arg.startsWith("--rows=")) {
+                String[] parts = value.split(",");
+                sizes = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    sizes[i] = Integer.parseInt(parts[i].trim().replace("_", ""));
+                }
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(value);
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(value);
+            } else if (arg.startsWith("--millis=")) {
+                millis = Long.parseLong(value);
+            } else if (arg.startsWith("--only=")) {
+                for (String name : value.split(",")) {
+                    only.add(name.trim());
+                }
+            } else if (arg.equals("--report-cache")) {
+                reportCache = true;
+            } else {
+                System.err.println("❌ Unknown argument: " + arg);
+                return;
+            }
+        }
+        boolean mysql = target.equals("mysql");
+        JDBCStudentDemo.useReportCache(reportCache);
+
+        System.out.println("=".repeat(60));
+        System.out.println("Student operations benchmark (" + target + ")");
+        System.out.println("=".repeat(60));
+        System.out.printf("Warm-up %d x %dms, measured %d x %dms per benchmark%n",
+                          warmup, millis, iterations, millis);
+
+        List<Result> results = new ArrayList<>();
+        for (int rows : sizes) {
+            StudentRepository repository = mysql ? new JdbcStudentRepository()
+                                                 : new InMemoryStudentRepository(rows + INSERTS_PER_ITERATION);
+            JDBCStudentDemo.useRepository(repository);
+            try {
+                System.out.printf("%nLoading %,d students...%n", rows);
+                long start = System.nanoTime();
+                load(repository, rows);
+                System.out.printf("   Loaded in %.1fs%n", (System.nanoTime() - start) / 1e9);
+
+                StudentBenchmark bench = new StudentBenchmark(repository, warmup, iterations, millis);
+                for (Case c : bench.cases(rows)) {
+                    if (!only.isEmpty() && !only.contains(c.name)) {
+                        continue;
+                    }
+                    Result result = bench.run(c, rows);
+                    results.add(result);
+                    System.out.println("   " + c.name + ": " + String.format("%.1f ops/s", result.opsPerSecond));
+                }
+            } catch (SQLException e) {
+                System.err.println("❌ SQL Error: " + e.getMessage());
+            } finally {
+                if (mysql) {
+                    cleanUpMySql();
+                }
+                JDBCStudentDemo.useRepository(new JdbcStudentRepository());
+                System.gc();
+            }
+        }
+
+        System.out.println();
+        System.out.println(Result.header());
+        System.out.println("-".repeat(Result.header().length()));
+        for (Result r : results) {
+            System.out.println(r);
+        }
+        if (mysql) {
+            JDBCStudentDemo.DbConnector.shutdown();
+        }
+    }
+}
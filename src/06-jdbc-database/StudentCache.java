@@ -0,0 +1,244 @@
+/**
+ * StudentCache - Size-bounded LRU + TTL cache keyed by primitive int ID
+ *
+ * This class demonstrates:
+ * - A hash table with int keys (no Integer boxing on lookup)
+ * - An intrusive doubly-linked list for least-recently-used eviction
+ * - Time-to-live expiry, with a shorter TTL for negative (missing ID) entries
+ * - Hit / miss / eviction counters for sizing the cache
+ *
+ * The cache stores {@link #ABSENT} for IDs known not to exist. Loaders take
+ * a {@link #generation()} ticket before querying the database and pass it to
+ * {@link #put}, so a value read before a concurrent invalidation is dropped
+ * instead of being cached stale.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class StudentCache {
+
+    /**
+     * Marker value for "this ID is not in basicdata"
+     */
+    static final StudentRow ABSENT = new StudentRow(Integer.MIN_VALUE, null, null);
+
+    /**
+     * Counter snapshot
+     */
+    static class Stats {
+        final long hits;
+        final long negativeHits;
+        final long misses;
+        final long evictions;
+        final long expirations;
+        final long invalidations;
+        final int size;
+
+        Stats(long hits, long negativeHits, long misses, long evictions,
+              long expirations, long invalidations, int size) {
+            this.hits = hits;
+            this.negativeHits = negativeHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.invalidations = invalidations;
+            this.size = size;
+        }
+
+        double hitRatio() {
+            long lookups = hits + negativeHits + misses;
+            return lookups == 0 ? 0.0 : (double) (hits + negativeHits) / lookups;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Cache[size=%d, hits=%d, negativeHits=%d, misses=%d, " +
+                                 "evictions=%d, expirations=%d, invalidations=%d, hitRatio=%.1f%%]",
+                                 size, hits, negativeHits, misses, evictions,
+                                 expirations, invalidations, hitRatio() * 100);
+        }
+    }
+
+    private static final class Node {
+        final int key;
+        StudentRow value;
+        long expiresAt;
+        Node chain;       // next node in the same hash bucket
+        Node prev, next;  // LRU order, head = most recently used
+
+        Node(int key) {
+            this.key = key;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long negativeTtlMillis;
+    private final Node[] table;
+    private final int mask;
+    private Node head, tail;
+    private int size;
+    private long generation;
+
+    private long hits, negativeHits, misses, evictions, expirations, invalidations;
+
+    StudentCache(int maxEntries, long ttlMillis, long negativeTtlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        int buckets = Integer.highestOneBit(Math.max(2, maxEntries * 4 / 3) - 1) << 1;
+        this.table = new Node[buckets];
+        this.mask = buckets - 1;
+    }
+
+    private int bucket(int key) {
+        int h = key * 0x9E3779B9; // Fibonacci hashing spreads sequential IDs
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * @return the cached row, {@link #ABSENT} for a cached miss, or null if not cached
+     */
+    synchronized StudentRow get(int id) {
+        Node node = find(id);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        if (System.currentTimeMillis() >= node.expiresAt) {
+            remove(node);
+            expirations++;
+            misses++;
+            return null;
+        }
+        moveToFront(node);
+        if (node.value == ABSENT) {
+            negativeHits++;
+        } else {
+            hits++;
+        }
+        return node.value;
+    }
+
+    /**
+     * Current invalidation generation; take it before loading from the database
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Cache a loaded value (null or ABSENT caches a miss) unless an
+     * invalidation happened since the loader took its generation ticket
+     */
+    synchronized void put(int id, StudentRow row, long loadedAtGeneration) {
+        if (loadedAtGeneration != generation) {
+            return;
+        }
+        StudentRow value = row == null ? ABSENT : row;
+        long ttl = value == ABSENT ? negativeTtlMillis : ttlMillis;
+
+        Node node = find(id);
+        if (node == null) {
+            if (size == maxEntries) {
+                remove(tail);
+                evictions++;
+            }
+            node = new Node(id);
+            int b = bucket(id);
+            node.chain = table[b];
+            table[b] = node;
+            size++;
+        } else {
+            unlink(node);
+        }
+        node.value = value;
+        node.expiresAt = System.currentTimeMillis() + ttl;
+        linkFirst(node);
+    }
+
+    /**
+     * Drop the entry for an ID; called synchronously by every write path
+     */
+    synchronized void invalidate(int id) {
+        generation++;
+        invalidations++;
+        Node node = find(id);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+    synchronized void clear() {
+        generation++;
+        java.util.Arrays.fill(table, null);
+        head = tail = null;
+        size = 0;
+    }
+
+    synchronized Stats stats() {
+        return new Stats(hits, negativeHits, misses, evictions, expirations, invalidations, size);
+    }
+
+    private Node find(int id) {
+        for (Node n = table[bucket(id)]; n != null; n = n.chain) {
+            if (n.key == id) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    private void remove(Node node) {
+        int b = bucket(node.key);
+        Node prev = null;
+        for (Node n = table[b]; n != null; prev = n, n = n.chain) {
+            if (n == node) {
+                if (prev == null) {
+                    table[b] = n.chain;
+                } else {
+                    prev.chain = n.chain;
+                }
+                break;
+            }
+        }
+        unlink(node);
+        size--;
+    }
+
+    private void moveToFront(Node node) {
+        if (head != node) {
+            unlink(node);
+            linkFirst(node);
+        }
+    }
+
+    private void linkFirst(Node node) {
+        node.prev = null;
+        node.next = head;
+        if (head != null) {
+            head.prev = node;
+        }
+        head = node;
+        if (tail == null) {
+            tail = node;
+        }
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else if (head == node) {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else if (tail == node) {
+            tail = node.prev;
+        }
+        node.prev = node.next = null;
+    }
+}
@@ -0,0 +1,488 @@
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * StudentDao - Typed data access for the basicdata table
+ *
+ * The console methods in JDBCStudentDemo print results; this class does the
+ * actual JDBC work and returns typed values instead, so other code (bulk
+ * loaders, caches, services) can reuse the same statements.
+ *
+ * Lookups by ID are read-through cached in {@link #CACHE}. Every write
+ * method invalidates the affected ID before it returns and reports it to
+ * {@link ChangeFeed#STUDENTS} for the in-memory views. When a
+ * {@link WriteBehindBuffer} is installed, lookups also reflect its queued
+ * name/address changes. The cache is always loaded from the primary, so
+ * replica lag can never be cached.
+ *
+ * Every operation has an overload taking a {@link ConnectionSource}, so a
+ * sharded store can run the same statements against its own pools. The
+ * cache is keyed by stu_id, which is unique across shards, so it is shared.
+ *
+ * Multi-gets ({@link #findByIds}) de-duplicate the IDs, answer what they
+ * can from the cache and read the rest in IN (...) chunks that run in
+ * parallel (at most {@link #MULTI_GET_PARALLELISM} at a time per call).
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class StudentDao {
+
+    static final String INSERT_SQL =
+        "INSERT INTO basicdata (stu_id, stu_name, stu_address) VALUES (?, ?, ?)";
+    // Row alias needs MySQL 8.0.19+; VALUES(col) in the UPDATE part is deprecated
+    static final String UPSERT_SQL =
+        "INSERT INTO basicdata (stu_id, stu_name, stu_address) VALUES (?, ?, ?) " +
+        "AS new ON DUPLICATE KEY UPDATE stu_name = new.stu_name, stu_address = new.stu_address";
+    static final String UPDATE_NAME_SQL =
+        "UPDATE basicdata SET stu_name = ? WHERE stu_id = ?";
+    static final String UPDATE_ADDRESS_SQL =
+        "UPDATE basicdata SET stu_address = ? WHERE stu_id = ?";
+    static final String DELETE_SQL =
+        "DELETE FROM basicdata WHERE stu_id = ?";
+    static final String FIND_BY_ID_SQL =
+        "SELECT " + RowMapper.STUDENT.selectList() + " FROM basicdata WHERE stu_id = ?";
+
+    /**
+     * IDs per IN (...) list: well under max_allowed_packet and the
+     * optimizer's range limits, yet few round trips
+     */
+    static final int IN_LIST_SIZE = 500;
+
+    /**
+     * The only IN-list lengths ever prepared; shorter lists are padded by
+     * repeating their last ID, so each table needs at most four statements
+     * in the statement cache instead of one per list length
+     */
+    private static final int[] IN_LIST_SLOTS = { 50, 100, 250, IN_LIST_SIZE };
+
+    /**
+     * Chunks of one multi-get in flight at once (the caller runs one of
+     * them itself), so a big lookup cannot take over the whole pool
+     */
+    static final int MULTI_GET_PARALLELISM = 4;
+
+    /**
+     * Smallest chunk worth its own round trip; a class list of 200 IDs
+     * becomes 4 queries of 50
+     */
+    static final int MULTI_GET_MIN_CHUNK = 50;
+
+    private static final AtomicInteger MULTI_GET_THREADS = new AtomicInteger();
+    private static final ExecutorService MULTI_GET = Executors.newFixedThreadPool(MULTI_GET_PARALLELISM - 1, r -> {
+        Thread t = new Thread(r, "multi-get-" + MULTI_GET_THREADS.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * 10,000 hot IDs for 60 seconds; missing IDs are remembered for 5 seconds
+     */
+    static final StudentCache CACHE = new StudentCache(10_000, 60_000, 5_000);
+
+    /**
+     * Optional write-behind buffer for name/address updates (null = write-through)
+     */
+    static volatile WriteBehindBuffer writeBehind;
+
+    /**
+     * Where a DAO call gets its connections from
+     */
+    interface ConnectionSource {
+        Connection primary() throws SQLException;
+
+        /**
+         * Connection for read-only work (may be a replica)
+         */
+        default Connection read() throws SQLException {
+            return primary();
+        }
+
+        /**
+         * Primary connection for read-only work that must see the latest writes
+         */
+        default Connection primaryRead() throws SQLException {
+            return primary();
+        }
+    }
+
+    /**
+     * The shared DbConnector pool (and its replicas for reads)
+     */
+    static final ConnectionSource DEFAULT_SOURCE = new ConnectionSource() {
+        @Override
+        public Connection primary() {
+            return JDBCStudentDemo.DbConnector.getConnection();
+        }
+
+        @Override
+        public Connection read() {
+            return JDBCStudentDemo.DbConnector.getReadConnection();
+        }
+
+        @Override
+        public Connection primaryRead() {
+            return JDBCStudentDemo.DbConnector.getPrimaryReadConnection();
+        }
+    };
+
+    private StudentDao() {
+    }
+
+    static int insert(int id, String name, String address) throws SQLException {
+        return insert(DEFAULT_SOURCE, id, name, address);
+    }
+
+    /**
+     * @return rows affected
+     */
+    static int insert(ConnectionSource source, int id, String name, String address)
+            throws SQLException {
+        discardPending(id);
+        try (QueryMetrics.Timer timer = QueryMetrics.start("insertStudent");
+             Connection conn = timer.connected(source.primary());
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, name);
+            pstmt.setString(3, address);
+            return timer.executed(pstmt.executeUpdate());
+        } finally {
+            discardPending(id);
+            CACHE.invalidate(id);
+            ChangeFeed.STUDENTS.changed(id);
+        }
+    }
+
+    /**
+     * Insert the student, or overwrite name and address if the ID exists,
+     * in one statement
+     * @return 1 if inserted (or already identical), 2 if an existing row changed
+     */
+    static int upsert(int id, String name, String address) throws SQLException {
+        return upsert(DEFAULT_SOURCE, id, name, address);
+    }
+
+    static int upsert(ConnectionSource source, int id, String name, String address)
+            throws SQLException {
+        discardPending(id);
+        try (QueryMetrics.Timer timer = QueryMetrics.start("upsertStudent");
+             Connection conn = timer.connected(source.primary());
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, name);
+            pstmt.setString(3, address);
+            return timer.executed(pstmt.executeUpdate());
+        } finally {
+            discardPending(id);
+            CACHE.invalidate(id);
+            ChangeFeed.STUDENTS.changed(id);
+        }
+    }
+
+    static int updateName(int id, String newName) throws SQLException {
+        return updateName(DEFAULT_SOURCE, id, newName);
+    }
+
+    static int updateName(ConnectionSource source, int id, String newName) throws SQLException {
+        return updateColumn(source, "updateStudentName", UPDATE_NAME_SQL, id, newName);
+    }
+
+    static int updateAddress(int id, String newAddress) throws SQLException {
+        return updateAddress(DEFAULT_SOURCE, id, newAddress);
+    }
+
+    static int updateAddress(ConnectionSource source, int id, String newAddress) throws SQLException {
+        return updateColumn(source, "updateStudentAddress", UPDATE_ADDRESS_SQL, id, newAddress);
+    }
+
+    private static int updateColumn(ConnectionSource source, String operation, String sql,
+                                    int id, String value) throws SQLException {
+        discardPending(id);
+        try (QueryMetrics.Timer timer = QueryMetrics.start(operation);
+             Connection conn = timer.connected(source.primary());
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, value);
+            pstmt.setInt(2, id);
+            return timer.executed(pstmt.executeUpdate());
+        } finally {
+            CACHE.invalidate(id);
+            ChangeFeed.STUDENTS.changed(id);
+        }
+    }
+
+    static int delete(int id) throws SQLException {
+        return delete(DEFAULT_SOURCE, id);
+    }
+
+    static int delete(ConnectionSource source, int id) throws SQLException {
+        discardPending(id);
+        try (QueryMetrics.Timer timer = QueryMetrics.start("deleteStudent");
+             Connection conn = timer.connected(source.primary());
+             PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+            pstmt.setInt(1, id);
+            return timer.executed(pstmt.executeUpdate());
+        } finally {
+            discardPending(id);
+            CACHE.invalidate(id);
+            ChangeFeed.STUDENTS.changed(id);
+            ChangeFeed.MARKS.changed(id); // marks rows cascade
+        }
+    }
+
+    /**
+     * Cached lookup by ID
+     * @return the student, or null if no such ID exists
+     */
+    static StudentRow findById(int id) throws SQLException {
+        return findById(DEFAULT_SOURCE, id);
+    }
+
+    static StudentRow findById(ConnectionSource source, int id) throws SQLException {
+        StudentRow cached = CACHE.get(id);
+        if (cached != null) {
+            return withPending(cached == StudentCache.ABSENT ? null : cached);
+        }
+        long generation = CACHE.generation();
+        StudentRow row = findByIdUncached(source, id);
+        CACHE.put(id, row, generation);
+        return withPending(row);
+    }
+
+    /**
+     * Cached lookup of many IDs in a few round trips
+     * @return one entry per requested ID, in the caller's order (repeated
+     *         IDs get the same row); null where no such student exists
+     */
+    static StudentRow[] findByIds(int... ids) throws SQLException {
+        return findByIds(DEFAULT_SOURCE, ids);
+    }
+
+    static StudentRow[] findByIds(ConnectionSource source, int... ids) throws SQLException {
+        int[] unique = distinct(ids);
+        StudentRow[] rows = new StudentRow[unique.length];
+        int[] missing = new int[unique.length];
+        int missingCount = 0;
+        for (int i = 0; i < unique.length; i++) {
+            StudentRow cached = CACHE.get(unique[i]);
+            if (cached == null) {
+                missing[missingCount++] = unique[i];
+            } else if (cached != StudentCache.ABSENT) {
+                rows[i] = cached;
+            }
+        }
+        if (missingCount > 0) {
+            long generation = CACHE.generation();
+            for (StudentRow row : findAllById(source, true, RowMapper.STUDENT, "basicdata",
+                                              missing, missingCount)) {
+                rows[Arrays.binarySearch(unique, row.getId())] = row;
+            }
+            for (int i = 0; i < missingCount; i++) {
+                CACHE.put(missing[i], rows[Arrays.binarySearch(unique, missing[i])], generation);
+            }
+        }
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = withPending(rows[i]);
+        }
+        return inCallerOrder(ids, unique, rows, new StudentRow[ids.length]);
+    }
+
+    /**
+     * Sorted copy of the IDs without repeats
+     */
+    static int[] distinct(int[] ids) {
+        int[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+
+    /**
+     * Spread rows found for the distinct IDs back over the requested IDs
+     * @param rows   rows[i] belongs to unique[i] (null = missing)
+     * @param result array of ids.length to fill
+     */
+    static <T> T[] inCallerOrder(int[] ids, int[] unique, T[] rows, T[] result) {
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = rows[Arrays.binarySearch(unique, ids[i])];
+        }
+        return result;
+    }
+
+    /**
+     * Rows of many IDs in IN (...) chunks run in parallel; IDs without a
+     * row are skipped, and the rows come back in no particular order
+     * @param ids     distinct IDs (the first count are used)
+     * @param primary read from the primary instead of source.read()
+     */
+    static <T> List<T> findAllById(ConnectionSource source, boolean primary, RowMapper<T> mapper,
+                                   String table, int[] ids, int count) throws SQLException {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        int chunk = (count + MULTI_GET_PARALLELISM - 1) / MULTI_GET_PARALLELISM;
+        chunk = inListSlots(Math.min(IN_LIST_SIZE, Math.max(MULTI_GET_MIN_CHUNK, chunk)));
+
+        List<Future<List<T>>> others = new ArrayList<>();
+        for (int from = chunk; from < count; from += chunk) {
+            int start = from;
+            int n = Math.min(chunk, count - from);
+            others.add(MULTI_GET.submit(() -> readChunk(source, primary, mapper, table, ids, start, n)));
+        }
+        List<T> rows = new ArrayList<>(count);
+        try {
+            rows.addAll(readChunk(source, primary, mapper, table, ids, 0, Math.min(chunk, count)));
+            for (Future<List<T>> f : others) {
+                rows.addAll(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a lookup chunk", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Lookup chunk failed", cause);
+        } finally {
+            for (Future<List<T>> f : others) {
+                f.cancel(false);
+            }
+        }
+        return rows;
+    }
+
+    private static <T> List<T> readChunk(ConnectionSource source, boolean primary, RowMapper<T> mapper,
+                                         String table, int[] ids, int from, int n) throws SQLException {
+        List<T> rows = new ArrayList<>(n);
+        try (QueryMetrics.Timer timer = QueryMetrics.start("findByIds." + table);
+             Connection conn = timer.connected(primary ? source.primaryRead() : source.read());
+             PreparedStatement pstmt = conn.prepareStatement(inListSql(mapper, table, inListSlots(n)))) {
+            bindInList(pstmt, ids, from, n);
+            try (ResultSet rs = timer.executed(pstmt.executeQuery())) {
+                mapper.forEach(rs, rows::add);
+            }
+        }
+        return rows;
+    }
+
+    private static StudentRow withPending(StudentRow row) {
+        WriteBehindBuffer buffer = writeBehind;
+        return buffer == null ? row : buffer.overlay(row);
+    }
+
+    /**
+     * Write queued changes now if any of them is for a stu_id in
+     * (afterId, toId], before a bulk change to that range. Like
+     * discardPending, call it before taking a connection.
+     */
+    static void flushPending(long afterId, int toId) throws SQLException {
+        WriteBehindBuffer buffer = writeBehind;
+        if (buffer != null && buffer.hasPending(afterId, toId)) {
+            buffer.flush();
+        }
+    }
+
+    static void discardPending(int id) {
+        WriteBehindBuffer buffer = writeBehind;
+        if (buffer != null) {
+            buffer.discard(id);
+        }
+    }
+
+    /**
+     * Lookup by ID that always goes to the database
+     */
+    static StudentRow findByIdUncached(int id) throws SQLException {
+        return findByIdUncached(DEFAULT_SOURCE, id);
+    }
+
+    static StudentRow findByIdUncached(ConnectionSource source, int id) throws SQLException {
+        try (QueryMetrics.Timer timer = QueryMetrics.start("findStudentById");
+             Connection conn = timer.connected(source.primaryRead());
+             PreparedStatement pstmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
+            pstmt.setInt(1, id);
+            try (ResultSet rs = timer.executed(pstmt.executeQuery())) {
+                return RowMapper.STUDENT.first(rs);
+            }
+        }
+    }
+
+    /**
+     * Current rows of many IDs, read from the primary (a replica may not
+     * have a just-written row yet) in chunked IN lists, in stu_id order
+     * per chunk. IDs without a row are skipped.
+     * @param table "basicdata" or "marks"; the mapper's columns must exist there
+     */
+    static <T> void forEachById(RowMapper<T> mapper, String table, int[] ids, int count,
+                                Consumer<? super T> consumer) throws SQLException {
+        if (count == 0) {
+            return;
+        }
+        try (QueryMetrics.Timer timer = QueryMetrics.start("forEachById." + table);
+             Connection conn = timer.connected(DEFAULT_SOURCE.primaryRead())) {
+            for (int from = 0; from < count; from += IN_LIST_SIZE) {
+                int n = Math.min(IN_LIST_SIZE, count - from);
+                try (PreparedStatement pstmt = conn.prepareStatement(inListSql(mapper, table, inListSlots(n)))) {
+                    bindInList(pstmt, ids, from, n);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        mapper.forEach(rs, consumer);
+                    }
+                }
+            }
+            timer.executed(count);
+        }
+    }
+
+    /**
+     * Smallest of IN_LIST_SLOTS that holds n IDs (n <= IN_LIST_SIZE)
+     */
+    private static int inListSlots(int n) {
+        for (int slots : IN_LIST_SLOTS) {
+            if (n <= slots) {
+                return slots;
+            }
+        }
+        throw new IllegalArgumentException("At most " + IN_LIST_SIZE + " IDs per IN list");
+    }
+
+    /**
+     * Bind ids[from .. from + n) and fill the remaining slots of the
+     * statement with the last of them (a repeated IN value matches nothing new)
+     */
+    private static void bindInList(PreparedStatement pstmt, int[] ids, int from, int n) throws SQLException {
+        int slots = inListSlots(n);
+        for (int i = 0; i < slots; i++) {
+            pstmt.setInt(i + 1, ids[from + Math.min(i, n - 1)]);
+        }
+    }
+
+    /**
+     * SELECT ... FROM table WHERE stu_id IN (?, ?, ...) ORDER BY stu_id
+     */
+    static String inListSql(RowMapper<?> mapper, String table, int n) {
+        StringBuilder sql = new StringBuilder(64 + n * 3)
+            .append("SELECT ").append(mapper.selectList())
+            .append(" FROM ").append(table).append(" WHERE stu_id IN (");
+        for (int i = 0; i < n; i++) {
+            sql.append(i == 0 ? "?" : ",?");
+        }
+        return sql.append(") ORDER BY stu_id").toString();
+    }
+}
@@ -0,0 +1,242 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * StudentHttpLoadTest - Closed-loop load test of StudentHttpService
+ *
+ * This class demonstrates:
+ * - N concurrent clients, each sending its next request as soon as the
+ *   previous one is answered (closed loop)
+ * - A warm-up period that is not measured
+ * - Requests per second and latency percentiles (QueryMetrics.LatencyHistogram)
+ * - Conditional GETs: with --etag, clients resend the last ETag they got
+ *   for an ID and count the 304 Not Modified answers
+ *
+ * Usage:
+ *   java StudentHttpLoadTest [--target=memory|mysql] [--rows=10000] [--concurrency=64]
+ *                            [--warmup=3] [--seconds=10] [--endpoint=student|marks|page|grades]
+ *                            [--etag] [--url=http://host:8080]
+ *
+ * Without --url an embedded service is started on a free port over
+ * generated students (IDs from StudentBenchmark.BASE_ID up; removed again
+ * on the mysql target). The page and grades endpoints are served only by
+ * the MySQL repository, so the embedded service needs --target=mysql for
+ * them (an in-memory service answers 501 Not Implemented).
+ * Client and server share one machine here, so the numbers are a
+ * baseline to compare changes against.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+public class StudentHttpLoadTest {
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String endpoint;
+    private final int rows;
+    private final boolean conditional;
+    private final ConcurrentHashMap<Integer, String> etags = new ConcurrentHashMap<>();
+
+    private final QueryMetrics.LatencyHistogram latency = new QueryMetrics.LatencyHistogram();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder otherStatus = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    StudentHttpLoadTest(String baseUrl, String endpoint, int rows, boolean conditional) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        this.baseUrl = baseUrl;
+        this.endpoint = endpoint;
+        this.rows = rows;
+        this.conditional = conditional;
+    }
+
+    /**
+     * Run the clients for warm-up plus measured time
+     * @return measured nanoseconds
+     */
+    long run(int concurrency, long warmupMillis, long measuredMillis) throws InterruptedException {
+        ExecutorService virtual = AsyncStudentService.newVirtualThreadExecutor();
+        ExecutorService clients = virtual != null ? virtual : Executors.newFixedThreadPool(concurrency);
+        long measureFrom = System.nanoTime() + warmupMillis * 1_000_000L;
+        long end = measureFrom + measuredMillis * 1_000_000L;
+        try {
+            List<Future<?>> running = new ArrayList<>(concurrency);
+            for (int i = 0; i < concurrency; i++) {
+                running.add(clients.submit(() -> clientLoop(measureFrom, end)));
+            }
+            for (Future<?> f : running) {
+                try {
+                    f.get();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    System.err.println("❌ Client failed: " + e.getCause());
+                }
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+        return end - measureFrom;
+    }
+
+    private void clientLoop(long measureFrom, long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            long start = System.nanoTime();
+            if (start >= end) {
+                return;
+            }
+            int id = StudentBenchmark.BASE_ID + random.nextInt(rows);
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + pathFor(id, random)))
+                .timeout(Duration.ofSeconds(30))
+                .GET();
+            String etag = conditional ? etags.get(id) : null;
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            try {
+                HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+                long elapsed = System.nanoTime() - start;
+                if (start < measureFrom) {
+                    continue;
+                }
+                latency.record(elapsed);
+                if (response.statusCode() == 200) {
+                    ok.increment();
+                    if (conditional) {
+                        response.headers().firstValue("ETag").ifPresent(tag -> etags.put(id, tag));
+                    }
+                } else if (response.statusCode() == 304) {
+                    notModified.increment();
+                } else {
+                    otherStatus.increment();
+                }
+            } catch (IOException e) {
+                failures.increment();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private String pathFor(int id, ThreadLocalRandom random) {
+        switch (endpoint) {
+            case "marks":
+                return "/students/" + id + "/marks";
+            case "page":
+                return "/students?limit=100&after=" + (id - 1);
+            case "grades":
+                return "/grades?top=" + (1 + random.nextInt(100));
+            default:
+                return "/students/" + id;
+        }
+    }
+
+    void report(long measuredNanos) {
+        long requests = latency.count();
+        System.out.println();
+        System.out.printf("%-14s %,d%n", "Requests", requests);
+        System.out.printf("%-14s %,.0f%n", "Requests/s", requests * 1e9 / measuredNanos);
+        System.out.printf("%-14s %.2f ms%n", "p50", latency.percentile(0.50) / 1e6);
+        System.out.printf("%-14s %.2f ms%n", "p99", latency.percentile(0.99) / 1e6);
+        System.out.printf("%-14s %.2f ms%n", "p99.9", latency.percentile(0.999) / 1e6);
+        System.out.printf("%-14s %,d%n", "200 OK", ok.sum());
+        System.out.printf("%-14s %,d%n", "304", notModified.sum());
+        System.out.printf("%-14s %,d%n", "Other status", otherStatus.sum());
+        System.out.printf("%-14s %,d%n", "I/O errors", failures.sum());
+    }
+
+    public static void main(String[] args) {
+        String target = "memory";
+        int rows = 10_000;
+        int concurrency = 64;
+        long warmup = 3;
+        long seconds = 10;
+        String endpoint = "student";
+        boolean conditional = false;
+        String url = null;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--target=")) {
+                target = value;
+            } else if (arg.startsWith("--rows=")) {
+                rows = Integer.parseInt(value.replace("_", ""));
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(value);
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Long.parseLong(value);
+            } else if (arg.startsWith("--seconds=")) {
+                seconds = Long.parseLong(value);
+            } else if (arg.startsWith("--endpoint=")) {
+                endpoint = value;
+            } else if (arg.equals("--etag")) {
+                conditional = true;
+            } else if (arg.startsWith("--url=")) {
+                url = value;
+            } else {
+                System.err.println("❌ Unknown argument: " + arg);
+                return;
+            }
+        }
+        boolean mysql = target.equals("mysql");
+        if (url == null && !mysql && (endpoint.equals("page") || endpoint.equals("grades"))) {
+            System.err.println("❌ --endpoint=" + endpoint + " needs --target=mysql (or --url)");
+            return;
+        }
+
+        System.out.println("=".repeat(60));
+        System.out.println("Student HTTP load test (" + endpoint + (conditional ? ", conditional" : "") + ")");
+        System.out.println("=".repeat(60));
+
+        StudentHttpService service = null;
+        try {
+            if (url == null) {
+                StudentRepository repository = mysql ? new JdbcStudentRepository()
+                                                     : new InMemoryStudentRepository(rows);
+                JDBCStudentDemo.useRepository(repository);
+                System.out.printf("Loading %,d students (%s)...%n", rows, target);
+                StudentBenchmark.load(repository, rows);
+                service = StudentHttpService.start(0);
+                url = "http://localhost:" + service.port();
+                System.out.println("✅ Service on " + url
+                                   + (service.usesVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+            }
+            System.out.printf("%d clients, %ds warm-up, %ds measured%n", concurrency, warmup, seconds);
+
+            StudentHttpLoadTest test = new StudentHttpLoadTest(url, endpoint, rows, conditional);
+            long measured = test.run(concurrency, warmup * 1000, seconds * 1000);
+            test.report(measured);
+
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+        } catch (IOException e) {
+            System.err.println("❌ Server Error: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (service != null) {
+                service.close();
+                if (mysql) {
+                    StudentBenchmark.cleanUpMySql();
+                    JDBCStudentDemo.DbConnector.shutdown();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,440 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * StudentHttpService - Read-only JSON API over the student data layer
+ *
+ * This class demonstrates:
+ * - The JDK's built-in HTTP server (com.sun.net.httpserver), no framework
+ * - One virtual thread per request on Java 21+ (platform threads otherwise),
+ *   with the connection pool as the real concurrency limit
+ * - Streaming responses: list and report rows are written as they are read
+ *   from the cursor, using chunked transfer encoding
+ * - ETag / If-None-Match: unchanged data is answered with 304 Not Modified
+ *
+ * Endpoints (GET only):
+ *   /students/{id}                  one student (strong ETag of the JSON body)
+ *   /students/{id}/marks            one student's marks
+ *   /students?after={id}&limit={n}  keyset page of students (limit 1..1000)
+ *   /grades?grade={A|B|C|F}&top={n} the grades report
+ *
+ * Lists carry a weak ETag built from ChangeFeed versions plus a random
+ * per-process epoch (the counters restart at 0 with every run), so they are
+ * only revalidated against writes made through this program. Lists are only
+ * tagged when they are read from the primary: a replica may still return
+ * rows from before the version the tag names. Lists need the MySQL
+ * repository; with shards or in-memory storage they answer 501.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class StudentHttpService implements AutoCloseable {
+
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_PAGE_SIZE = 1_000;
+
+    private static final String JSON = "application/json; charset=utf-8";
+
+    // Keeps a list ETag from an earlier run (same ChangeFeed counts) from matching
+    private static final String EPOCH = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    private StudentHttpService(HttpServer server, ExecutorService executor, boolean virtualThreads) {
+        this.server = server;
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Start listening (port 0 picks a free port)
+     */
+    static StudentHttpService start(int port) throws IOException {
+        // Without TCP_NODELAY, headers and body leave as two small packets and
+        // Nagle's algorithm waits for the client's delayed ACK: ~40 ms per response.
+        // Read once when the server classes load, so set it before the first create().
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        ExecutorService virtual = AsyncStudentService.newVirtualThreadExecutor();
+        ExecutorService executor = virtual != null ? virtual
+            : Executors.newFixedThreadPool(JDBCStudentDemo.DbConnector.maxPoolSize() * 2, r -> {
+                Thread t = new Thread(r, "StudentHttpService-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        StudentHttpService service = new StudentHttpService(server, executor, virtual != null);
+        server.createContext("/students", service::handleStudents);
+        server.createContext("/grades", service::handleGrades);
+        server.setExecutor(executor);
+        server.start();
+        return service;
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    // Handlers
+
+    private void handleStudents(HttpExchange exchange) throws IOException {
+        try {
+            if (!allowGet(exchange)) {
+                return;
+            }
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            // "", "students", id, "marks"
+            if (path.length == 2) {
+                listStudents(exchange);
+            } else if (path.length == 3) {
+                getStudent(exchange, parseId(path[2]));
+            } else if (path.length == 4 && path[3].equals("marks")) {
+                getMarks(exchange, parseId(path[2]));
+            } else {
+                sendError(exchange, 404, "No such resource");
+            }
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            sendError(exchange, 503, "Database unavailable");
+        } catch (RuntimeException e) {
+            if (!(e.getCause() instanceof SQLException)) {
+                throw e;
+            }
+            // DbConnector could not connect, or the admission limiter shed the request
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Database busy, try again");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleGrades(HttpExchange exchange) throws IOException {
+        try {
+            if (!allowGet(exchange)) {
+                return;
+            }
+            Map<String, String> query = query(exchange);
+            GradeReport.Filter filter = GradeReport.Filter.all();
+            String grade = query.get("grade");
+            if (grade != null) {
+                if (grade.length() != 1) {
+                    throw new IllegalArgumentException("Grade must be A, B, C or F");
+                }
+                filter.onlyGrade(Character.toUpperCase(grade.charAt(0)));
+            }
+            if (query.containsKey("top")) {
+                filter.top(Integer.parseInt(query.get("top")));
+            }
+            StudentDao.ConnectionSource source = listSource(exchange);
+            if (source == null) {
+                return;
+            }
+            String etag = null;
+            if (JDBCStudentDemo.readsFollowWrites(source)) {
+                etag = "W/\"" + EPOCH + "-g" + ChangeFeed.STUDENTS.version() + "-" + ChangeFeed.MARKS.version()
+                     + "-" + filter.toString().hashCode() + "\"";
+                if (notModified(exchange, etag)) {
+                    return;
+                }
+            }
+
+            try (Connection conn = source.read()) {
+                Writer out = startStream(exchange, etag);
+                out.write("{\"filter\":");
+                writeString(out, filter.toString());
+                out.write(",\"students\":[");
+                boolean[] first = { true };
+                GradeReport.forEach(conn, filter, row -> {
+                    try {
+                        out.write(first[0] ? "\n" : ",\n");
+                        first[0] = false;
+                        out.write("{\"id\":" + row.id + ",\"name\":");
+                        writeString(out, row.name);
+                        out.write(",\"subject1\":" + row.subject1 + ",\"subject2\":" + row.subject2
+                                  + ",\"subject3\":" + row.subject3 + ",\"average\":" + row.average
+                                  + ",\"grade\":\"" + row.grade + "\"}");
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                out.write("\n]}\n");
+                out.flush();
+            }
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // client went away mid-stream
+        } catch (SQLException e) {
+            System.err.println("❌ SQL Error: " + e.getMessage());
+            sendError(exchange, 503, "Database unavailable");
+        } catch (RuntimeException e) {
+            if (!(e.getCause() instanceof SQLException)) {
+                throw e;
+            }
+            // DbConnector could not connect, or the admission limiter shed the request
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Database busy, try again");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void getStudent(HttpExchange exchange, int id) throws IOException, SQLException {
+        StudentRow student = JDBCStudentDemo.repository().findById(id);
+        if (student == null) {
+            sendError(exchange, 404, "No student with ID " + id);
+            return;
+        }
+        StringWriter json = new StringWriter(128);
+        json.write("{\"id\":" + student.getId() + ",\"name\":");
+        writeString(json, student.getName());
+        json.write(",\"address\":");
+        writeString(json, student.getAddress());
+        json.write("}\n");
+        sendJson(exchange, json.toString());
+    }
+
+    private void getMarks(HttpExchange exchange, int id) throws IOException, SQLException {
+        MarksRow marks = JDBCStudentDemo.repository().findMarks(id);
+        if (marks == null) {
+            sendError(exchange, 404, "No marks for student ID " + id);
+            return;
+        }
+        int average = (marks.getSubject1() + marks.getSubject2() + marks.getSubject3()) / 3;
+        sendJson(exchange, "{\"id\":" + marks.getId()
+            + ",\"subject1\":" + marks.getSubject1() + ",\"subject2\":" + marks.getSubject2()
+            + ",\"subject3\":" + marks.getSubject3() + ",\"average\":" + average
+            + ",\"grade\":\"" + JDBCStudentDemo.gradeFor(average) + "\"}\n");
+    }
+
+    /**
+     * Keyset pagination: the response names the "after" value of the next page
+     */
+    private void listStudents(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> query = query(exchange);
+        int after = Integer.parseInt(query.getOrDefault("after", String.valueOf(Integer.MIN_VALUE)));
+        int limit = Integer.parseInt(query.getOrDefault("limit", String.valueOf(DEFAULT_PAGE_SIZE)));
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        StudentDao.ConnectionSource source = listSource(exchange);
+        if (source == null) {
+            return;
+        }
+        String etag = null;
+        if (JDBCStudentDemo.readsFollowWrites(source)) {
+            etag = "W/\"" + EPOCH + "-s" + ChangeFeed.STUDENTS.version() + "-" + after + "-" + limit + "\"";
+            if (notModified(exchange, etag)) {
+                return;
+            }
+        }
+
+        try (Connection conn = source.read()) {
+            Writer out = startStream(exchange, etag);
+            out.write("{\"students\":[");
+            int[] count = { 0 };
+            int last = new StreamingExporter(limit).exportStudentsPage(conn, after, limit,
+                new StreamingExporter.RowSink() {
+                    @Override
+                    public void begin(String[] columns) {
+                    }
+
+                    @Override
+                    public void row(Object[] values) throws IOException {
+                        out.write(count[0]++ == 0 ? "\n" : ",\n");
+                        out.write("{\"id\":" + values[0] + ",\"name\":");
+                        writeString(out, (String) values[1]);
+                        out.write(",\"address\":");
+                        writeString(out, (String) values[2]);
+                        out.write("}");
+                    }
+                });
+            out.write("\n],\"next\":" + (count[0] == limit ? String.valueOf(last) : "null") + "}\n");
+            out.flush();
+        }
+    }
+
+    /**
+     * Connections of the active repository for the SQL-backed lists, or null
+     * (after answering 501) when it is sharded or in memory
+     */
+    private static StudentDao.ConnectionSource listSource(HttpExchange exchange) throws IOException {
+        StudentRepository repo = JDBCStudentDemo.repository();
+        if (repo instanceof JdbcStudentRepository) {
+            return ((JdbcStudentRepository) repo).source();
+        }
+        sendError(exchange, 501, "Lists need the MySQL repository (not sharded or in-memory)");
+        return null;
+    }
+
+    // HTTP helpers
+
+    private static boolean allowGet(HttpExchange exchange) throws IOException {
+        if (exchange.getRequestMethod().equals("GET")) {
+            return true;
+        }
+        exchange.getResponseHeaders().set("Allow", "GET");
+        sendError(exchange, 405, "Only GET is supported");
+        return false;
+    }
+
+    private static int parseId(String text) {
+        return Integer.parseInt(URLDecoder.decode(text, StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                           URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Answer 304 if the client's If-None-Match already names this version
+     */
+    private static boolean notModified(HttpExchange exchange, String etag) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String bare = etag.startsWith("W/") ? etag.substring(2) : etag;
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(bare) || tag.equals("*")) {
+                exchange.getResponseHeaders().set("ETag", etag);
+                exchange.sendResponseHeaders(304, -1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A complete (small) JSON body with a strong ETag of its bytes
+     */
+    private static void sendJson(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + body.length + "\"";
+        if (notModified(exchange, etag)) {
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * Send headers for a chunked 200 response and return its body writer
+     * (etag null = not cacheable)
+     */
+    private static Writer startStream(HttpExchange exchange, String etag) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        if (etag != null) {
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        } else {
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
+        }
+        exchange.sendResponseHeaders(200, 0);
+        return new BufferedWriter(
+            new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() != -1) {
+            return; // headers already sent; the client sees a truncated body
+        }
+        StringWriter json = new StringWriter();
+        json.write("{\"error\":");
+        writeString(json, message);
+        json.write("}\n");
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    /**
+     * A JSON string literal (null becomes null)
+     */
+    static void writeString(Writer out, String value) throws IOException {
+        if (value == null) {
+            out.write("null");
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':  out.write("\\\""); break;
+                case '\\': out.write("\\\\"); break;
+                case '\n': out.write("\\n"); break;
+                case '\r': out.write("\\r"); break;
+                case '\t': out.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    /**
+     * Stop accepting requests, give running ones up to a second to finish
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * StudentRepository - Storage-independent student operations
+ *
+ * This interface demonstrates:
+ * - Programming against an interface instead of a concrete database
+ * - Swappable engines: JdbcStudentRepository (MySQL) and
+ *   InMemoryStudentRepository (primitive-keyed, for hot reads and benchmarks)
+ * - Visitor callbacks with primitive parameters, so scans don't allocate rows
+ *
+ * Scans visit rows in ascending stu_id order. Implementations report the
+ * same errors MySQL would (duplicate key, missing parent row) as SQLException.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+interface StudentRepository {
+
+    /**
+     * Receives one basicdata row
+     */
+    interface StudentVisitor {
+        void visit(int id, String name, String address);
+    }
+
+    /**
+     * Receives one basicdata row joined with its marks row
+     */
+    interface StudentMarksVisitor {
+        void visit(int id, String name, String address, int subject1, int subject2, int subject3);
+    }
+
+    // basicdata
+
+    int insert(int id, String name, String address) throws SQLException;
+
+    /**
+     * Insert many students; engines override this with a batched path
+     * @return rows inserted
+     */
+    default int insertAll(Collection<StudentRow> students) throws SQLException {
+        int rows = 0;
+        for (StudentRow s : students) {
+            rows += insert(s.getId(), s.getName(), s.getAddress());
+        }
+        return rows;
+    }
+
+    /**
+     * Insert the student, or overwrite name and address if the ID exists
+     * @return 1 if inserted (or already identical), 2 if an existing row changed
+     */
+    int upsert(int id, String name, String address) throws SQLException;
+
+    int updateName(int id, String newName) throws SQLException;
+
+    int updateAddress(int id, String newAddress) throws SQLException;
+
+    /**
+     * Delete a student (and, like ON DELETE CASCADE, their marks)
+     */
+    int delete(int id) throws SQLException;
+
+    /**
+     * @return the student, or null if no such ID exists
+     */
+    StudentRow findById(int id) throws SQLException;
+
+    /**
+     * Look up many students at once; engines override this to save round trips
+     * @return one entry per ID, in the same order (repeats included);
+     *         null where no such ID exists
+     */
+    default StudentRow[] findByIds(int... ids) throws SQLException {
+        StudentRow[] rows = new StudentRow[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rows[i] = findById(ids[i]);
+        }
+        return rows;
+    }
+
+    void forEachStudent(StudentVisitor visitor) throws SQLException;
+
+    // marks
+
+    int insertMarks(int id, int subject1, int subject2, int subject3) throws SQLException;
+
+    /**
+     * Insert many marks rows; engines override this with a batched path
+     * @return rows inserted
+     */
+    default int insertAllMarks(Collection<MarksRow> marks) throws SQLException {
+        int rows = 0;
+        for (MarksRow m : marks) {
+            rows += insertMarks(m.getId(), m.getSubject1(), m.getSubject2(), m.getSubject3());
+        }
+        return rows;
+    }
+
+    /**
+     * @return the marks row, or null if the student has no marks
+     */
+    MarksRow findMarks(int id) throws SQLException;
+
+    /**
+     * Marks of many students at once; engines override this to save round trips
+     * @return one entry per ID, in the same order (repeats included);
+     *         null where the student has no marks
+     */
+    default MarksRow[] findMarksByIds(int... ids) throws SQLException {
+        MarksRow[] rows = new MarksRow[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            rows[i] = findMarks(ids[i]);
+        }
+        return rows;
+    }
+
+    // basicdata INNER JOIN marks
+
+    void forEachStudentWithMarks(StudentMarksVisitor visitor) throws SQLException;
+}
@@ -0,0 +1,29 @@
+/**
+ * StudentRow - One row of the basicdata table
+ *
+ * Immutable value object used by the bulk and typed data-access APIs
+ * (the console methods in JDBCStudentDemo print rows instead).
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class StudentRow {
+    private final int id;
+    private final String name;
+    private final String address;
+
+    StudentRow(int id, String name, String address) {
+        this.id = id;
+        this.name = name;
+        this.address = address;
+    }
+
+    public int getId() { return id; }
+    public String getName() { return name; }
+    public String getAddress() { return address; }
+
+    @Override
+    public String toString() {
+        return String.format("StudentRow[ID=%d, Name=%s, Address=%s]", id, name, address);
+    }
+}
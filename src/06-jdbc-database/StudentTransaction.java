@@ -0,0 +1,277 @@
+import java.sql.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * StudentTransaction - Several basicdata/marks changes in one commit
+ *
+ * This class demonstrates:
+ * - Manual transactions: setAutoCommit(false), commit() and rollback()
+ * - One pooled connection (and its cached statements) for the whole unit
+ * - Upserts with INSERT ... ON DUPLICATE KEY UPDATE instead of read-then-write
+ * - Retrying the whole unit after a deadlock or lock wait timeout
+ *
+ * Usage:
+ * <pre>
+ * StudentTransaction.run(tx -> {
+ *     tx.upsertStudent(1, "Alice", "Colombo");
+ *     tx.upsertMarks(1, 80, 75, 90);
+ * });
+ * </pre>
+ * Statements run as soon as they are called, so row counts and constraint
+ * errors come back immediately, but nothing is visible to other connections
+ * until commit(). Closing without commit() rolls everything back. Cached
+ * lookups of every touched ID are invalidated when the transaction ends,
+ * whichever way it ends. Queued write-behind changes of touched students
+ * are taken out of the buffer (so they are not flushed over this
+ * transaction's values) and put back if it rolls back; touching a student
+ * that is being flushed right now fails with a retryable error instead of
+ * waiting, since the flush may be waiting for this transaction's locks.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+final class StudentTransaction implements AutoCloseable {
+
+    static final String UPSERT_MARKS_SQL =
+        "INSERT INTO marks (stu_id, subject1, subject2, subject3) VALUES (?, ?, ?, ?) AS new " +
+        "ON DUPLICATE KEY UPDATE subject1 = new.subject1, subject2 = new.subject2, " +
+        "subject3 = new.subject3";
+
+    /**
+     * The body of a transaction; throwing rolls it back
+     */
+    interface Work {
+        void execute(StudentTransaction tx) throws SQLException;
+    }
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final QueryMetrics.Timer timer;
+    private final Connection conn;
+    private int[] touched = new int[8];
+    private int touchedCount;
+    private WriteBehindBuffer takenFrom;
+    private Map<Integer, WriteBehindBuffer.PendingUpdate> taken;
+    private int statements;
+    private boolean committed;
+    private boolean closed;
+
+    private StudentTransaction(QueryMetrics.Timer timer, Connection conn) {
+        this.timer = timer;
+        this.conn = conn;
+    }
+
+    /**
+     * Take a connection from the pool and start a transaction on it
+     */
+    static StudentTransaction begin() throws SQLException {
+        QueryMetrics.Timer timer = QueryMetrics.start("transaction");
+        Connection conn = null;
+        try {
+            conn = timer.connected(JDBCStudentDemo.DbConnector.getConnection());
+            conn.setAutoCommit(false);
+            return new StudentTransaction(timer, conn);
+        } catch (SQLException | RuntimeException e) {
+            if (conn != null) {
+                conn.close();
+            }
+            timer.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Run the work in a transaction and commit it. After a deadlock or lock
+     * wait timeout the whole unit is rolled back and run again (up to 3 times),
+     * so the work must not have side effects outside the database.
+     * @return number of statements executed by the committed attempt
+     */
+    static int run(Work work) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try (StudentTransaction tx = begin()) {
+                work.execute(tx);
+                tx.commit();
+                return tx.statements;
+            } catch (SQLException e) {
+                if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                    throw e;
+                }
+                // The connection is back: a flush we collided with can finish now
+                WriteBehindBuffer buffer = StudentDao.writeBehind;
+                if (buffer != null) {
+                    buffer.awaitInFlight();
+                }
+            }
+        }
+    }
+
+    /**
+     * Deadlock (1213 / SQLSTATE 40001) or lock wait timeout (1205)
+     */
+    static boolean isRetryable(SQLException e) {
+        return "40001".equals(e.getSQLState())
+            || e.getErrorCode() == 1213 || e.getErrorCode() == 1205;
+    }
+
+    // basicdata
+
+    int insertStudent(int id, String name, String address) throws SQLException {
+        touch(id);
+        try (PreparedStatement pstmt = conn.prepareStatement(StudentDao.INSERT_SQL)) {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, name);
+            pstmt.setString(3, address);
+            return execute(pstmt);
+        }
+    }
+
+    /**
+     * @return 1 if inserted (or already identical), 2 if an existing row changed
+     */
+    int upsertStudent(int id, String name, String address) throws SQLException {
+        touch(id);
+        try (PreparedStatement pstmt = conn.prepareStatement(StudentDao.UPSERT_SQL)) {
+            pstmt.setInt(1, id);
+            pstmt.setString(2, name);
+            pstmt.setString(3, address);
+            return execute(pstmt);
+        }
+    }
+
+    int updateName(int id, String newName) throws SQLException {
+        return updateColumn(StudentDao.UPDATE_NAME_SQL, id, newName);
+    }
+
+    int updateAddress(int id, String newAddress) throws SQLException {
+        return updateColumn(StudentDao.UPDATE_ADDRESS_SQL, id, newAddress);
+    }
+
+    private int updateColumn(String sql, int id, String value) throws SQLException {
+        touch(id);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, value);
+            pstmt.setInt(2, id);
+            return execute(pstmt);
+        }
+    }
+
+    int deleteStudent(int id) throws SQLException {
+        touch(id);
+        try (PreparedStatement pstmt = conn.prepareStatement(StudentDao.DELETE_SQL)) {
+            pstmt.setInt(1, id);
+            return execute(pstmt);
+        }
+    }
+
+    // marks
+
+    int insertMarks(int id, int subject1, int subject2, int subject3) throws SQLException {
+        return marks(JdbcStudentRepository.INSERT_MARKS_SQL, id, subject1, subject2, subject3);
+    }
+
+    /**
+     * @return 1 if inserted (or already identical), 2 if an existing row changed
+     */
+    int upsertMarks(int id, int subject1, int subject2, int subject3) throws SQLException {
+        return marks(UPSERT_MARKS_SQL, id, subject1, subject2, subject3);
+    }
+
+    private int marks(String sql, int id, int subject1, int subject2, int subject3)
+            throws SQLException {
+        ensureOpen();
+        remember(id);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, id);
+            pstmt.setInt(2, subject1);
+            pstmt.setInt(3, subject2);
+            pstmt.setInt(4, subject3);
+            return execute(pstmt);
+        }
+    }
+
+    /**
+     * Make every change so far durable and visible (one commit, one log flush)
+     */
+    void commit() throws SQLException {
+        ensureOpen();
+        conn.commit();
+        committed = true;
+        timer.executed(statements);
+    }
+
+    int statementCount() {
+        return statements;
+    }
+
+    /**
+     * Roll back unless committed, return the connection to the pool and
+     * invalidate cached lookups (and in-memory views) of the touched IDs
+     */
+    @Override
+    public void close() throws SQLException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!committed) {
+                conn.rollback();
+            }
+            conn.setAutoCommit(true);
+        } finally {
+            conn.close();
+            if (!committed && taken != null) {
+                for (Map.Entry<Integer, WriteBehindBuffer.PendingUpdate> entry : taken.entrySet()) {
+                    takenFrom.restore(entry.getKey(), entry.getValue());
+                }
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                StudentDao.CACHE.invalidate(touched[i]);
+                ChangeFeed.STUDENTS.changed(touched[i]);
+                ChangeFeed.MARKS.changed(touched[i]);
+            }
+            timer.close();
+        }
+    }
+
+    private int execute(PreparedStatement pstmt) throws SQLException {
+        statements++;
+        return pstmt.executeUpdate();
+    }
+
+    /**
+     * Remember the ID for invalidation and take its queued write-behind
+     * changes, which would otherwise be flushed over this transaction's
+     * values. Never waits: this transaction may already hold row locks.
+     */
+    private void touch(int id) throws SQLException {
+        ensureOpen();
+        WriteBehindBuffer buffer = StudentDao.writeBehind;
+        if (buffer != null && (takenFrom == null || takenFrom == buffer)) {
+            WriteBehindBuffer.PendingUpdate queued = buffer.take(id);
+            if (queued != null) {
+                if (taken == null) {
+                    taken = new HashMap<>();
+                    takenFrom = buffer;
+                }
+                taken.putIfAbsent(id, queued);
+            }
+        }
+        remember(id);
+    }
+
+    private void remember(int id) {
+        if (touchedCount == touched.length) {
+            touched = Arrays.copyOf(touched, touchedCount * 2);
+        }
+        touched[touchedCount++] = id;
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed || committed) {
+            throw new SQLException("Transaction already " + (closed ? "closed" : "committed"));
+        }
+    }
+}
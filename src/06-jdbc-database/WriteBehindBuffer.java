@@ -0,0 +1,399 @@
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WriteBehindBuffer - Coalescing buffer for name/address updates
+ *
+ * This class demonstrates:
+ * - Merging repeated field changes for the same stu_id in memory
+ * - Flushing one UPDATE per ID, batched across IDs in a single transaction
+ * - Size-triggered and time-triggered flushes, plus a final flush on shutdown
+ * - Read-your-writes: lookups see queued changes before they reach MySQL
+ * - Flush latency metrics
+ *
+ * Updates are held in memory until flushed, so anything still pending is
+ * lost if the process dies; use it where that trade-off is acceptable.
+ * Inserts, deletes and direct updates call {@link #discard} first, which
+ * waits for an in-flight flush of that ID, so an old queued value can never
+ * land on top of a newer row.
+ *
+ * @author BICT Intermediate Java Course
+ * @version 1.0
+ */
+class WriteBehindBuffer implements AutoCloseable {
+
+    static final String UPDATE_BOTH_SQL =
+        "UPDATE basicdata SET stu_name = ?, stu_address = ? WHERE stu_id = ?";
+
+    /**
+     * Latest queued values for one ID (null = field unchanged)
+     */
+    static final class PendingUpdate {
+        String name;
+        String address;
+        final long queuedAtNanos;
+
+        PendingUpdate(long queuedAtNanos) {
+            this.queuedAtNanos = queuedAtNanos;
+        }
+
+        /**
+         * Apply newer values from another update on top of this one
+         */
+        void mergeNewer(PendingUpdate newer) {
+            if (newer.name != null) {
+                name = newer.name;
+            }
+            if (newer.address != null) {
+                address = newer.address;
+            }
+        }
+    }
+
+    /**
+     * Flush metrics snapshot
+     */
+    static class Stats {
+        final long updatesQueued;
+        final long rowsFlushed;
+        final long flushes;
+        final long failedFlushes;
+        final long totalFlushNanos;
+        final long maxFlushNanos;
+        final long maxQueuedNanos;
+        final int pending;
+
+        Stats(long updatesQueued, long rowsFlushed, long flushes, long failedFlushes,
+              long totalFlushNanos, long maxFlushNanos, long maxQueuedNanos, int pending) {
+            this.updatesQueued = updatesQueued;
+            this.rowsFlushed = rowsFlushed;
+            this.flushes = flushes;
+            this.failedFlushes = failedFlushes;
+            this.totalFlushNanos = totalFlushNanos;
+            this.maxFlushNanos = maxFlushNanos;
+            this.maxQueuedNanos = maxQueuedNanos;
+            this.pending = pending;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("WriteBehind[queued=%d, flushedRows=%d, flushes=%d, failed=%d, " +
+                                 "avgFlush=%.2fms, maxFlush=%.2fms, maxQueueTime=%.2fms, pending=%d]",
+                                 updatesQueued, rowsFlushed, flushes, failedFlushes,
+                                 flushes == 0 ? 0.0 : totalFlushNanos / 1e6 / flushes,
+                                 maxFlushNanos / 1e6, maxQueuedNanos / 1e6, pending);
+        }
+    }
+
+    private final int maxPending;
+    private final StudentDao.ConnectionSource source;
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+
+    private Map<Integer, PendingUpdate> pending = new HashMap<>();
+    private Map<Integer, PendingUpdate> inFlight = new HashMap<>();
+    private boolean flushRequested;
+    private boolean closed;
+
+    private long updatesQueued, rowsFlushed, flushes, failedFlushes;
+    private long totalFlushNanos, maxFlushNanos, maxQueuedNanos;
+
+    /**
+     * @param flushIntervalMillis time trigger
+     * @param maxPending size trigger (distinct IDs waiting)
+     * @param source where flushes write to (the active MySQL repository's pool)
+     */
+    WriteBehindBuffer(long flushIntervalMillis, int maxPending, StudentDao.ConnectionSource source) {
+        this.maxPending = maxPending;
+        this.source = source;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "WriteBehindBuffer-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis,
+                                       flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return false if the buffer is closing; write the change directly instead
+     */
+    boolean updateName(int id, String newName) {
+        return queue(id, newName, null);
+    }
+
+    boolean updateAddress(int id, String newAddress) {
+        return queue(id, null, newAddress);
+    }
+
+    private boolean queue(int id, String name, String address) {
+        boolean trigger;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            PendingUpdate update = pending.get(id);
+            if (update == null) {
+                update = new PendingUpdate(System.nanoTime());
+                pending.put(id, update);
+            }
+            if (name != null) {
+                update.name = name;
+            }
+            if (address != null) {
+                update.address = address;
+            }
+            updatesQueued++;
+            trigger = pending.size() >= maxPending && !flushRequested;
+            if (trigger) {
+                flushRequested = true;
+            }
+        }
+        if (trigger) {
+            try {
+                flusher.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Closing: close() flushes everything that was queued
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forget queued changes for an ID that is about to be (or was just)
+     * inserted, updated directly or deleted. If a flush is writing the ID
+     * right now, wait for it, so its UPDATE lands before the caller's write.
+     * Call it before taking a connection: the flush needs one too.
+     */
+    synchronized void discard(int id) {
+        try {
+            while (inFlight.containsKey(id)) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pending.remove(id);
+    }
+
+    /**
+     * discard() for a transaction, which may hold row locks a flush is
+     * waiting for and so must not wait for the flush: removes and returns
+     * the queued change (null if none), or fails with a retryable error
+     * while the ID is being flushed
+     */
+    synchronized PendingUpdate take(int id) throws SQLTransactionRollbackException {
+        if (inFlight.containsKey(id)) {
+            throw new SQLTransactionRollbackException("Student " + id
+                + " is being written by write-behind; retry the transaction", "40001");
+        }
+        return pending.remove(id);
+    }
+
+    /**
+     * Queue a change taken by a transaction that rolled back again;
+     * anything queued meanwhile is newer and wins
+     */
+    synchronized void restore(int id, PendingUpdate update) {
+        if (closed) {
+            System.err.println("⚠️  Write-behind closed; queued change for ID " + id + " dropped");
+            return;
+        }
+        PendingUpdate newer = pending.get(id);
+        if (newer != null) {
+            update.mergeNewer(newer);
+        }
+        pending.put(id, update);
+    }
+
+    /**
+     * Wait until no flush is writing; call it without holding a connection
+     */
+    synchronized void awaitInFlight() {
+        try {
+            while (!inFlight.isEmpty()) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * True if a change for a stu_id in (afterId, toId] is queued or being flushed
+     */
+    synchronized boolean hasPending(long afterId, int toId) {
+        return anyIn(pending, afterId, toId) || anyIn(inFlight, afterId, toId);
+    }
+
+    private static boolean anyIn(Map<Integer, PendingUpdate> updates, long afterId, int toId) {
+        for (int id : updates.keySet()) {
+            if (id > afterId && id <= toId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Read-your-writes: the row as it will look once queued changes are flushed
+     */
+    synchronized StudentRow overlay(StudentRow row) {
+        if (row == null) {
+            return null;
+        }
+        PendingUpdate flushing = inFlight.get(row.getId());
+        PendingUpdate queued = pending.get(row.getId());
+        if (flushing == null && queued == null) {
+            return row;
+        }
+        String name = row.getName();
+        String address = row.getAddress();
+        for (PendingUpdate u : new PendingUpdate[] { flushing, queued }) {
+            if (u != null) {
+                if (u.name != null) name = u.name;
+                if (u.address != null) address = u.address;
+            }
+        }
+        return new StudentRow(row.getId(), name, address);
+    }
+
+    /**
+     * Write every queued change: one UPDATE per ID, all in one batch and transaction
+     */
+    void flush() throws SQLException {
+        synchronized (flushLock) {
+            Map<Integer, PendingUpdate> batch;
+            synchronized (this) {
+                flushRequested = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                inFlight = batch;
+                pending = new HashMap<>();
+            }
+
+            long start = System.nanoTime();
+            try {
+                writeBatch(batch);
+            } catch (SQLException | RuntimeException e) {
+                synchronized (this) {
+                    failedFlushes++;
+                    // Put the changes back; anything queued meanwhile is newer and wins
+                    for (Map.Entry<Integer, PendingUpdate> entry : batch.entrySet()) {
+                        PendingUpdate newer = pending.get(entry.getKey());
+                        if (newer != null) {
+                            entry.getValue().mergeNewer(newer);
+                        }
+                        pending.put(entry.getKey(), entry.getValue());
+                    }
+                    inFlight = new HashMap<>();
+                    notifyAll();
+                }
+                throw e;
+            }
+
+            long end = System.nanoTime();
+            for (Integer id : batch.keySet()) {
+                StudentDao.CACHE.invalidate(id);
+                ChangeFeed.STUDENTS.changed(id);
+            }
+            synchronized (this) {
+                inFlight = new HashMap<>();
+                notifyAll();
+                flushes++;
+                rowsFlushed += batch.size();
+                long elapsed = end - start;
+                totalFlushNanos += elapsed;
+                maxFlushNanos = Math.max(maxFlushNanos, elapsed);
+                for (PendingUpdate u : batch.values()) {
+                    maxQueuedNanos = Math.max(maxQueuedNanos, end - u.queuedAtNanos);
+                }
+            }
+        }
+    }
+
+    private void writeBatch(Map<Integer, PendingUpdate> batch) throws SQLException {
+        try (Connection conn = source.primary()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement both = conn.prepareStatement(UPDATE_BOTH_SQL);
+                 PreparedStatement nameOnly = conn.prepareStatement(StudentDao.UPDATE_NAME_SQL);
+                 PreparedStatement addressOnly = conn.prepareStatement(StudentDao.UPDATE_ADDRESS_SQL)) {
+                boolean hasBoth = false, hasName = false, hasAddress = false;
+                for (Map.Entry<Integer, PendingUpdate> entry : batch.entrySet()) {
+                    int id = entry.getKey();
+                    PendingUpdate u = entry.getValue();
+                    if (u.name != null && u.address != null) {
+                        both.setString(1, u.name);
+                        both.setString(2, u.address);
+                        both.setInt(3, id);
+                        both.addBatch();
+                        hasBoth = true;
+                    } else if (u.name != null) {
+                        nameOnly.setString(1, u.name);
+                        nameOnly.setInt(2, id);
+                        nameOnly.addBatch();
+                        hasName = true;
+                    } else {
+                        addressOnly.setString(1, u.address);
+                        addressOnly.setInt(2, id);
+                        addressOnly.addBatch();
+                        hasAddress = true;
+                    }
+                }
+                if (hasBoth) both.executeBatch();
+                if (hasName) nameOnly.executeBatch();
+                if (hasAddress) addressOnly.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("❌ Write-behind flush failed (will retry): " + e.getMessage());
+        }
+    }
+
+    synchronized Stats stats() {
+        return new Stats(updatesQueued, rowsFlushed, flushes, failedFlushes,
+                         totalFlushNanos, maxFlushNanos, maxQueuedNanos, pending.size());
+    }
+
+    /**
+     * Stop accepting updates, flush whatever is still queued and stop the
+     * timer. If the final flush fails, the buffer is reopened with its
+     * changes still queued, so it can be put back in service.
+     */
+    @Override
+    public void close() throws SQLException {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            flush();
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                closed = false;
+            }
+            throw e;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}